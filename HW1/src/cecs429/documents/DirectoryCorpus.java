@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.function.Predicate;
@@ -51,9 +52,11 @@ public class DirectoryCorpus implements DocumentCorpus {
 	
 	/**
 	 * Reads all documents in the corpus into a map from ID to document object.
+	 * IDs are assigned in sorted file name order, so a corpus always gets the same IDs no matter what order the file system lists it in.
 	 */
 	private HashMap<Integer, Document> readDocuments() throws IOException {
-		Iterable<Path> allFiles = findFiles();
+		List<Path> allFiles = findFiles();
+		Collections.sort(allFiles);
 		
 		// Next build the mapping from document ID to document.
 		HashMap<Integer, Document> result = new HashMap<>();
@@ -66,10 +69,37 @@ public class DirectoryCorpus implements DocumentCorpus {
 		return result;
 	}
 	
+	/**
+	 * Sets up the corpus with the given files (relative to the corpus directory) as its documents, giving each one the
+	 * ID of its position in the list instead of walking the directory. This is used to match the corpus to the IDs an
+	 * on-disk index was built with. A non-null title is kept as the document's title so it doesn't have to be read
+	 * from the file again.
+	 * Returns false (leaving the corpus to walk its directory as usual) if any of the files can't be loaded.
+	 */
+	public boolean restoreDocuments(List<String> fileNames, List<String> titles) {
+		HashMap<Integer, Document> result = new HashMap<>();
+		for (int id = 0; id < fileNames.size(); id++) {
+			Path file = mDirectoryPath.resolve(fileNames.get(id));
+			FileDocumentFactory factory = mFactories.get(getFileExtension(file));
+			if (factory == null) {
+				System.out.println("Can't load the indexed document '" + fileNames.get(id) + "' because its file type isn't registered with the corpus");
+				return false;
+			}
+			FileDocument document = factory.createFileDocument(file, id);
+			String title = titles.get(id);
+			if (title != null && document instanceof JsonFileDocument) {
+				((JsonFileDocument) document).setTitle(title);
+			}
+			result.put(id, document);
+		}
+		mDocuments = result;
+		return true;
+	}
+
 	/**
 	 * Finds all file names that match the corpus filter predicate and have a known file extension.
 	 */
-	private Iterable<Path> findFiles() throws IOException {
+	private List<Path> findFiles() throws IOException {
 		List<Path> allFiles = new ArrayList<>();
 		
 		// First discover all the files in the directory that match the filter.
@@ -154,6 +184,7 @@ public class DirectoryCorpus implements DocumentCorpus {
 
 	@Override
 	public void setAvgDocLength(int avgDocLength) {
+		mAvgDocLength = avgDocLength;
 
 	}
 
@@ -2,6 +2,7 @@ package cecs429.documents;
 
 import cecs429.weights.DocWeight;
 
+import java.io.IOException;
 import java.io.Reader;
 
 /**
@@ -29,4 +30,10 @@ public interface Document {
 
 	long getByteSize();
 
+	/**
+	 * Reads the document's content into memory ahead of time, so the next call to getContent() doesn't have to wait
+	 * on the disk. Documents that aren't backed by a file have nothing to prefetch.
+	 */
+	default void prefetch() throws IOException {
+	}
 }
@@ -0,0 +1,136 @@
+package cecs429.documents;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads documents into memory on a small pool of I/O threads ahead of whoever is indexing them, so tokenizing never has
+ * to stop and wait on the disk. Documents are always handed back in the same order they were given in.
+ * <p>
+ * Every list being prefetched shares one budget of bytes: a document is only read ahead if its size still fits in what's
+ * left of the budget, and its bytes are given back once whoever is iterating moves on to the next document. When a list has
+ * nothing read ahead and the budget is used up, its next document is read anyway (so no one ever waits on the budget), which
+ * keeps the prefetched content to the budget plus at most one document per list being iterated.
+ */
+public class DocumentPrefetcher implements Closeable {
+    private final ExecutorService mLoaders;
+    private final long mBudgetBytes;
+    private final AtomicLong mBytesInUse = new AtomicLong();
+
+    public DocumentPrefetcher(int threads, long budgetBytes) {
+        mLoaders = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "document-prefetcher");
+            // don't keep the program alive just because a build was abandoned part way through
+            thread.setDaemon(true);
+            return thread;
+        });
+        mBudgetBytes = Math.max(0, budgetBytes);
+    }
+
+    /**
+     * Returns the documents in their original order, each one already prefetched (or being prefetched) by the time it
+     * comes up, as long as the budget allows.
+     */
+    public Iterable<Document> prefetch(List<Document> documents) {
+        return () -> new PrefetchingIterator(documents);
+    }
+
+    @Override
+    public void close() {
+        mLoaders.shutdownNow();
+    }
+
+    // takes the bytes out of the budget if they fit in what's left of it
+    private boolean tryReserve(long bytes) {
+        while (true) {
+            long inUse = mBytesInUse.get();
+            if (inUse + bytes > mBudgetBytes) {
+                return false;
+            }
+            if (mBytesInUse.compareAndSet(inUse, inUse + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private class PrefetchingIterator implements Iterator<Document> {
+        private final List<Document> mDocuments;
+        private final ArrayDeque<Future<Document>> mQueue;
+        private final ArrayDeque<Long> mQueuedBytes; // the bytes reserved for each document in mQueue
+        private int mNextToSubmit;
+        private long mHandedOutBytes; // the bytes of the last document handed out, given back when the next one is asked for
+
+        private PrefetchingIterator(List<Document> documents) {
+            mDocuments = documents;
+            mQueue = new ArrayDeque<>();
+            mQueuedBytes = new ArrayDeque<>();
+            fill();
+        }
+
+        // read ahead the next documents in line for as long as they fit in the budget
+        private void fill() {
+            while (mNextToSubmit < mDocuments.size()) {
+                long bytes = Math.max(0, mDocuments.get(mNextToSubmit).getByteSize());
+                if (!tryReserve(bytes)) {
+                    return;
+                }
+                submit(bytes);
+            }
+        }
+
+        private void submit(long bytes) {
+            Document d = mDocuments.get(mNextToSubmit++);
+            mQueuedBytes.add(bytes);
+            mQueue.add(mLoaders.submit(() -> {
+                d.prefetch();
+                return d;
+            }));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!mQueue.isEmpty() || mNextToSubmit < mDocuments.size()) {
+                return true;
+            }
+            // the last document is done with
+            mBytesInUse.addAndGet(-mHandedOutBytes);
+            mHandedOutBytes = 0;
+            return false;
+        }
+
+        @Override
+        public Document next() {
+            // the document handed out last is done with, so its bytes go back to the budget
+            mBytesInUse.addAndGet(-mHandedOutBytes);
+            mHandedOutBytes = 0;
+            fill();
+            if (mQueue.isEmpty()) {
+                if (mNextToSubmit >= mDocuments.size()) {
+                    throw new NoSuchElementException();
+                }
+                // the budget is used up by other lists, so read this one's next document over it rather than wait
+                long bytes = Math.max(0, mDocuments.get(mNextToSubmit).getByteSize());
+                mBytesInUse.addAndGet(bytes);
+                submit(bytes);
+            }
+            Future<Document> next = mQueue.poll();
+            mHandedOutBytes = mQueuedBytes.poll();
+            try {
+                return next.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException(ex.getCause());
+            }
+        }
+    }
+}
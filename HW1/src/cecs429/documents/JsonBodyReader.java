@@ -0,0 +1,315 @@
+package cecs429.documents;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Streams the "body" value of a JSON document straight out of the file's bytes, so the body is never read into a String.
+ * The file is scanned once from top to bottom: the keys before the body are parsed as soon as the first char is read,
+ * the body's chars (with their escapes decoded) are handed out by read(), and the keys after the body are parsed once
+ * its closing quote is reached. The "id" and "title" values and the total number of bytes in the file are given back to
+ * the document when the scan reaches the end of the file.
+ * <p>
+ * The file isn't opened until the first read, and it's closed as soon as the scan finishes.
+ */
+class JsonBodyReader extends Reader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int UNICODE_REPLACEMENT = 0xFFFD;
+
+    private final JsonFileDocument mDocument;
+    private InputStream mIn;
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private int mBufferPosition;
+    private int mBufferLimit;
+    private long mBytesRead;
+
+    private int mPeeked = -2; // the next char if it has been looked at but not consumed yet; -2 when there isn't one
+    private char mPendingLowSurrogate; // second half of a supplementary code point that didn't fit in the last read
+    private boolean mStarted;
+    private boolean mInBody;
+
+    private String mId;
+    private String mTitle;
+
+    JsonBodyReader(JsonFileDocument document) {
+        mDocument = document;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!mStarted) {
+            start();
+        }
+        int count = 0;
+        while (count < len && mInBody) {
+            if (mPendingLowSurrogate != 0) {
+                cbuf[off + count++] = mPendingLowSurrogate;
+                mPendingLowSurrogate = 0;
+                continue;
+            }
+            int c = nextChar();
+            if (c < 0) {
+                throw new IOException("Unterminated body value in " + mDocument.getFilePath());
+            }
+            if (c == '"') {
+                // the body is over, so pick up whatever metadata comes after it
+                mInBody = false;
+                parseMembers();
+                break;
+            }
+            if (c == '\\') {
+                c = readEscape();
+            }
+            if (c > 0xFFFF) {
+                cbuf[off + count++] = Character.highSurrogate(c);
+                mPendingLowSurrogate = Character.lowSurrogate(c);
+            } else {
+                cbuf[off + count++] = (char) c;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Scans the whole file, skipping over the body without decoding it, just to collect the metadata.
+     */
+    void readMetadata() throws IOException {
+        if (!mStarted) {
+            start();
+        }
+        if (mInBody) {
+            mInBody = false;
+            skipString();
+            parseMembers();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mInBody = false;
+        if (mIn != null) {
+            mIn.close();
+            mIn = null;
+        }
+    }
+
+    private void start() throws IOException {
+        mStarted = true;
+        mIn = mDocument.openContentStream();
+        if (nextNonWhitespace() != '{') {
+            throw new IOException("Expected a JSON object in " + mDocument.getFilePath());
+        }
+        parseMembers();
+    }
+
+    // parses the members of the top level object until it reaches the body's value or the end of the object
+    private void parseMembers() throws IOException {
+        while (true) {
+            int c = nextNonWhitespace();
+            if (c == ',') {
+                continue;
+            }
+            if (c == '}' || c < 0) {
+                finish();
+                return;
+            }
+            if (c != '"') {
+                throw new IOException("Expected a key in " + mDocument.getFilePath());
+            }
+            String name = readString();
+            if (nextNonWhitespace() != ':') {
+                throw new IOException("Expected a ':' after the key '" + name + "' in " + mDocument.getFilePath());
+            }
+
+            c = nextNonWhitespace();
+            if (name.equals("body") && c == '"') {
+                mInBody = true;
+                return;
+            }
+            if (name.equals("id")) {
+                mId = readScalar(c);
+            } else if (name.equals("title") && c == '"') {
+                mTitle = readString();
+            } else {
+                skipValue(c);
+            }
+        }
+    }
+
+    // reads the rest of the file so the byte count covers all of it, then hands the results to the document
+    private void finish() throws IOException {
+        while (nextByte() >= 0) {
+        }
+        close();
+        mDocument.setMetadata(mId, mTitle, mBytesRead);
+    }
+
+    // reads a string or number value as text; the leading quote (if any) has already been consumed as c
+    private String readScalar(int c) throws IOException {
+        if (c == '"') {
+            return readString();
+        }
+        StringBuilder builder = new StringBuilder();
+        while (c >= 0 && c != ',' && c != '}' && c != ']' && !isWhitespace(c)) {
+            builder.appendCodePoint(c);
+            c = nextChar();
+        }
+        mPeeked = c;
+        return builder.toString();
+    }
+
+    // skips a value of any type; its first char has already been consumed as c
+    private void skipValue(int c) throws IOException {
+        if (c == '"') {
+            skipString();
+            return;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                c = nextChar();
+                if (c < 0) {
+                    throw new IOException("Unterminated value in " + mDocument.getFilePath());
+                }
+                if (c == '"') {
+                    skipString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+            return;
+        }
+        // a number, true, false or null
+        readScalar(c);
+    }
+
+    // reads the rest of a string whose opening quote has already been consumed
+    private String readString() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c = nextChar();
+        while (c != '"') {
+            if (c < 0) {
+                throw new IOException("Unterminated string in " + mDocument.getFilePath());
+            }
+            builder.appendCodePoint(c == '\\' ? readEscape() : c);
+            c = nextChar();
+        }
+        return builder.toString();
+    }
+
+    private void skipString() throws IOException {
+        int c = nextByte();
+        while (c != '"') {
+            if (c < 0) {
+                throw new IOException("Unterminated string in " + mDocument.getFilePath());
+            }
+            if (c == '\\') {
+                nextByte();
+            }
+            c = nextByte();
+        }
+    }
+
+    // decodes the char after a backslash
+    private int readEscape() throws IOException {
+        int c = nextChar();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u': {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw new IOException("Malformed unicode escape in " + mDocument.getFilePath());
+                    }
+                    value = (value << 4) | digit;
+                }
+                return value;
+            }
+            default:
+                // '"', '\\' and '/' stand for themselves
+                if (c < 0) {
+                    throw new IOException("Unterminated escape in " + mDocument.getFilePath());
+                }
+                return c;
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = nextChar();
+        while (isWhitespace(c)) {
+            c = nextChar();
+        }
+        return c;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    // decodes the next UTF-8 code point from the file, or returns -1 at the end of it
+    private int nextChar() throws IOException {
+        if (mPeeked != -2) {
+            int c = mPeeked;
+            mPeeked = -2;
+            return c;
+        }
+        int b = nextByte();
+        if (b < 0x80) {
+            return b;
+        }
+        int extraBytes;
+        int codePoint;
+        if ((b & 0xE0) == 0xC0) {
+            extraBytes = 1;
+            codePoint = b & 0x1F;
+        } else if ((b & 0xF0) == 0xE0) {
+            extraBytes = 2;
+            codePoint = b & 0x0F;
+        } else if ((b & 0xF8) == 0xF0) {
+            extraBytes = 3;
+            codePoint = b & 0x07;
+        } else {
+            return UNICODE_REPLACEMENT;
+        }
+        for (int i = 0; i < extraBytes; i++) {
+            int next = nextByte();
+            if ((next & 0xC0) != 0x80) {
+                return UNICODE_REPLACEMENT;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        return codePoint;
+    }
+
+    private int nextByte() throws IOException {
+        if (mBufferPosition == mBufferLimit) {
+            if (mIn == null) {
+                return -1;
+            }
+            int read = mIn.read(mBuffer, 0, BUFFER_SIZE);
+            if (read <= 0) {
+                return -1;
+            }
+            mBufferPosition = 0;
+            mBufferLimit = read;
+            mBytesRead += read;
+        }
+        return mBuffer[mBufferPosition++] & 0xFF;
+    }
+}
@@ -1,15 +1,14 @@
 package cecs429.documents;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Objects;
 
 import cecs429.weights.DocWeight;
-import com.google.gson.stream.JsonReader;
 
 
 /**
@@ -21,6 +20,9 @@ public class JsonFileDocument implements FileDocument {
     private Path mFilePath;
     private String mDocumentTitle;
     private DocWeight mDocWeight;
+    private boolean mMetadataLoaded;
+    private boolean mTitleLoaded;
+    private byte[] mPrefetchedContent;
     /**
      * Constructs a TextFileDocument with the given document ID representing the file at the given
      * absolute file path.
@@ -49,66 +51,83 @@ public class JsonFileDocument implements FileDocument {
 
     @Override
     public long getByteSize() {
-        try {
-            mByteSize = Files.size(mFilePath);
-        } catch (IOException e) {
-            e.printStackTrace();
+        // the size is counted while the content is read, so the file only has to be checked if it hasn't been read yet
+        if (!mMetadataLoaded && mByteSize == 0) {
+            try {
+                mByteSize = Files.size(mFilePath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
         return mByteSize;
     }
     /**
-     * Returns the content of a .json is the value of the "body"" key, which you can read as a string. You will need to find a way to construct a stream around that string in memory
+     * Returns the content of a .json is the value of the "body" key. The body is streamed directly from the file as it
+     * is read rather than being loaded into a String first, and the title and byte size are picked up along the way.
      * @return
      */
     @Override
     public Reader getContent() {
-        // try to read content as a .json file
-        try {
-            // initialize a counter to keep track of the file size in bytes
-
-
-            // use a JsonReader to start reading the file
-            JsonReader reader = new JsonReader(Files.newBufferedReader(mFilePath));
-
-            // initialize string to hold body content
-            String content = "";
-            reader.beginObject();
-
-            // parse through objects (names) in the file using beginObject
-            while (reader.hasNext()) {
-                String currentName = reader.nextName();
-                // find the "Body" section
-                if (Objects.equals(currentName, "body")) {
-                    // extract the content as a string
-                    content = reader.nextString();
-                }
-                // find the "title" section and store it in the corresponding class variable
-                // simplifies getTitle()
-                else if (Objects.equals(currentName, "id")) {
-                    mDocumentTitle = String.valueOf(reader.nextInt());
-                }
-                else {
-                    reader.nextString();
-                }
-            }
-            // close the reader and stream
-            reader.endObject();
-            reader.close();
-            // wrap the content in a StringReader
-            StringReader contentStream = new StringReader(content);
-            return contentStream;
+        return new JsonBodyReader(this);
+    }
+
+    @Override
+    public void prefetch() throws IOException {
+        mPrefetchedContent = Files.readAllBytes(mFilePath);
+    }
+
+    /**
+     * Opens the raw bytes of the file for a JsonBodyReader. Prefetched content is only used once, so the next scan goes
+     * back to the file.
+     */
+    InputStream openContentStream() throws IOException {
+        byte[] content = mPrefetchedContent;
+        mPrefetchedContent = null;
+        if (content != null) {
+            return new ByteArrayInputStream(content);
         }
+        return Files.newInputStream(mFilePath);
+    }
 
-        catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Called by the JsonBodyReader once it has scanned the whole file.
+     * The "id" value is used as the title when there is one (matching the ids in the relevance judgements); otherwise
+     * the "title" value is.
+     */
+    void setMetadata(String id, String title, long byteSize) {
+        if (id != null) {
+            try {
+                mDocumentTitle = String.valueOf(Integer.parseInt(id));
+            } catch (NumberFormatException ex) {
+                mDocumentTitle = id;
+            }
+        } else {
+            mDocumentTitle = title;
         }
+        mByteSize = byteSize;
+        mMetadataLoaded = true;
+        mTitleLoaded = true;
+    }
+
+    // uses a title that was already worked out (e.g. saved alongside an on-disk index) instead of scanning the file for it
+    void setTitle(String title) {
+        mDocumentTitle = title;
+        mTitleLoaded = true;
     }
 
     /**
-     * @return title of document as found in the "title" key.
+     * @return title of document as found in the "id" key, or the "title" key if there is no id.
      */
     @Override
     public String getTitle() {
+        // scan the file for its metadata if the content hasn't been read all the way through yet
+        if (!mTitleLoaded) {
+            try {
+                new JsonBodyReader(this).readMetadata();
+            } catch (IOException e) {
+                System.out.println("Failed to read the title of the document at " + mFilePath);
+            }
+        }
         return mDocumentTitle;
     }
 
@@ -2,10 +2,13 @@ package cecs429.documents;
 
 import cecs429.weights.DocWeight;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -17,6 +20,7 @@ public class TextFileDocument implements FileDocument {
 	private Path mFilePath;
 	private DocWeight mDocWeight;
 	private long mByteSize;
+	private byte[] mPrefetchedContent;
 	/**
 	 * Constructs a TextFileDocument with the given document ID representing the file at the given
 	 * absolute file path.
@@ -44,6 +48,9 @@ public class TextFileDocument implements FileDocument {
 
 	@Override
 	public long getByteSize() {
+		if (mByteSize != 0) {
+			return mByteSize;
+		}
 		try {
 			mByteSize = Files.size(mFilePath);
 		} catch (IOException e) {
@@ -59,6 +66,13 @@ public class TextFileDocument implements FileDocument {
 
 	@Override
 	public Reader getContent() {
+		// prefetched content is only used once, so the next read goes back to the file
+		byte[] content = mPrefetchedContent;
+		mPrefetchedContent = null;
+		if (content != null) {
+			// report malformed input the same way Files.newBufferedReader does
+			return new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8.newDecoder());
+		}
 		try {
 			return Files.newBufferedReader(mFilePath);
 		} catch (IOException e) {
@@ -66,6 +80,12 @@ public class TextFileDocument implements FileDocument {
 		}
 	}
 
+	@Override
+	public void prefetch() throws IOException {
+		mPrefetchedContent = Files.readAllBytes(mFilePath);
+		mByteSize = mPrefetchedContent.length;
+	}
+
 	@Override
 	public String getTitle() {
 		return mFilePath.getFileName().toString();
@@ -4,14 +4,12 @@ package cecs429.evaluation;
 import cecs429.indexes.Index;
 import cecs429.indexes.Posting;
 import cecs429.queries.QueryComponent;
+import cecs429.queries.QueryContext;
 import cecs429.queries.RankedQuery;
-import cecs429.text.AdvancedTokenProcessor;
-import cecs429.text.TokenProcessor;
 
 import javax.management.Query;
 
 import static edu.csulb.Driver.ActiveConfiguration.activeCorpus;
-import static edu.csulb.Driver.ActiveConfiguration.activeIndex;
 
 import java.sql.SQLOutput;
 import java.util.*;
@@ -19,27 +17,23 @@ import java.util.*;
 
 // TODO: implement this so that it encapsulates a single RankedQuery object and a matching List<Integer> of relevant docId's
 public class EvaluatedQuery {
-    private TokenProcessor mProcessor;
+    private RankedQuery mQuery;
 
-    private static RankedQuery mQuery;
-
-    private static List<Integer> mTotalRelevant; // list of all the relative docs that should have been retrieved for
+    private List<Integer> mTotalRelevant; // list of all the relative docs that should have been retrieved for
     // the
     // mQuery (basically just an exact line read from qRel)
-    private static List<Integer> mTotalRetrieved; // list of all doc names mQuery's getPostings()
+    private List<Integer> mTotalRetrieved; // list of all doc names mQuery's getPostings()
 
-    private static HashMap<Integer, Boolean> mRetrievedRelevant; // Map of all retrieved docs and a boolean indicating
+    private HashMap<Integer, Boolean> mRetrievedRelevant; // Map of all retrieved docs and a boolean indicating
     // whether it was relevant
 
-    private static List<String> mTotal; // list of all doc names in the entire corpus
+    private List<String> mTotal; // list of all doc names in the entire corpus
 
     public EvaluatedQuery(QueryComponent q) {
-        mProcessor = new AdvancedTokenProcessor();
         mQuery = (RankedQuery) q;
     }
 
     public EvaluatedQuery(QueryComponent q, List<String> qRel) {
-        mProcessor = new AdvancedTokenProcessor();
         mQuery = (RankedQuery) q;
 
         mTotalRelevant = new ArrayList<>();
@@ -49,12 +43,14 @@ public class EvaluatedQuery {
         Collections.sort(mTotalRelevant);
     }
 
-    public List<Integer> getTotalRetrieved(int kTerms) {
-        mQuery.setKterms(kTerms);
-        List<Posting> postings = mQuery.getPostingsWithoutPositions(mProcessor, activeIndex);
+    // runs the query with the given context (its index, scheme and ranking strategy) and keeps the top kTerms docs
+    public List<Integer> getTotalRetrieved(QueryContext context, int kTerms) {
+        context.setResultCount(kTerms);
+        List<Posting> postings = mQuery.getPostingsWithoutPositions(context);
         mTotalRetrieved = new ArrayList<>();
 
-        for (Posting p : postings) {
+        // keep the highest ranked doc first
+        for (Posting p : RankedQuery.highestRankedFirst(postings)) {
             int titleInt = Integer.parseInt(activeCorpus.getDocument(p.getDocumentId()).getTitle());
             mTotalRetrieved.add(titleInt);
         }
@@ -66,12 +62,12 @@ public class EvaluatedQuery {
         return mTotalRelevant;
     }
 
-    public HashMap<Integer, Boolean> getRetrievedRelevant(int kTerms) {
-        if (mTotalRetrieved == null || mTotalRetrieved.size() == 0) {
-            mTotalRetrieved = getTotalRetrieved(kTerms);
-        }
+    public HashMap<Integer, Boolean> getRetrievedRelevant(QueryContext context, int kTerms) {
+        // always run the query again, since the weighing scheme (or the index's weight encoding) may have changed since the last time
+        mTotalRetrieved = getTotalRetrieved(context, kTerms);
 
-        mRetrievedRelevant = new HashMap<>();
+        // keep the docs in rank order (highest ranked first), since precision at k depends on it
+        mRetrievedRelevant = new LinkedHashMap<>();
 
         for (int ret : mTotalRetrieved) {
             if (mTotalRelevant.contains(ret)) {
@@ -2,10 +2,9 @@ package cecs429.evaluation;
 
 import cecs429.indexes.Posting;
 import cecs429.queries.QueryComponent;
+import cecs429.queries.QueryContext;
 import cecs429.queries.RankedQuery;
 import cecs429.queries.RankedQueryParser;
-import cecs429.text.AdvancedTokenProcessor;
-import cecs429.text.TokenProcessor;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -16,13 +15,11 @@ import java.nio.file.Paths;
 import java.util.*;
 
 import com.google.common.base.Stopwatch;
-import edu.csulb.Driver;
-import edu.csulb.Driver.WeighingScheme;
 
 import javax.management.Query;
 import java.io.File;
 
-import static edu.csulb.Driver.ActiveConfiguration.*;
+import static edu.csulb.Driver.ActiveConfiguration.activeCorpus;
 
 
 // driver for the entire evaluation service
@@ -32,7 +29,6 @@ public class Evaluator {
     private Path mQueryRelPath;
 
     private RankedQueryParser mParser = new RankedQueryParser();
-    TokenProcessor mProcessor;
     private QueryComponent mQuery;
     private EvaluatedQuery mEvalQuery;
 
@@ -42,7 +38,6 @@ public class Evaluator {
         mQueryPath = Paths.get(mRelevancePath + "/queries").toAbsolutePath();
         mQueryRelPath = Paths.get(mRelevancePath + "/qrel").toAbsolutePath();
         mParser = new RankedQueryParser();
-        mProcessor = new AdvancedTokenProcessor();
     }
 
     // takes in the int of a line number to read from file to find the query to be evaluated
@@ -71,18 +66,19 @@ public class Evaluator {
         List<EvaluatedQuery> results = new ArrayList<>();
 
         try {
+            // read both files just once up front; evaluateFileQuery() would read them again for every line
             List<String> allQueries = Files.readAllLines(mQueryPath);
+            List<String> allQueryRels = Files.readAllLines(mQueryRelPath);
 
             if (read_all) {
                 count = allQueries.size();
             }
+            count = Math.min(count, Math.min(allQueries.size(), allQueryRels.size()));
 
-            for (int i = 1; i < count + 1; i++) {
-//                String qString = allQueries.get(i);
-//                mQuery = mParser.parseQuery(qString);
-//                EvaluatedQuery q = new EvaluatedQuery(mQuery);
-                EvaluatedQuery q = evaluateFileQuery(i);
-                results.add(q);
+            for (int i = 0; i < count; i++) {
+                QueryComponent query = mParser.parseQuery(allQueries.get(i));
+                List<String> qRels = Arrays.asList(allQueryRels.get(i).split(" "));
+                results.add(new EvaluatedQuery(query, qRels));
             }
         }
         catch (IOException e) {
@@ -113,13 +109,12 @@ public class Evaluator {
         mQuery = mParser.parseQuery(input);
     }
 
-    // calculates the MAP of all queries on file over the entire active corpus using configurable weighing scheme that is passed in
+    // calculates the average precision of a single query, ranked with the index, weighing scheme and ranking strategy of the context passed in
     // here 'k' represents the number of ranked postings that will be retrieved by the rankedQuery for the given calculation
-    public double calculateAvgPrecision(WeighingScheme scheme, int kTerms, EvaluatedQuery q) {
+    public double calculateAvgPrecision(QueryContext context, int kTerms, EvaluatedQuery q) {
         mEvalQuery = q;
-        Driver.ActiveConfiguration.setWeightingScheme(scheme);
         int totalRel = mEvalQuery.getTotalRelevant().size(); // |Rel|
-        HashMap<Integer, Boolean> relevance = mEvalQuery.getRetrievedRelevant(kTerms);
+        HashMap<Integer, Boolean> relevance = mEvalQuery.getRetrievedRelevant(context, kTerms);
         double result = 0;
 
         // keep running totals for k and rel (where k = total retrieved docs at k and rel = total relevant docs at k
@@ -133,9 +128,11 @@ public class Evaluator {
                 rel += 1;
             }
 
-            // only calculate pAk at each step after appropriately incrementing k and rel
-            double pAk = (double) rel / k;
-            result += pAk;
+            // only add pAk at the ranks where a relevant doc was retrieved
+            if (relevance.get(doc)) {
+                double pAk = (double) rel / k;
+                result += pAk;
+            }
         }
 
         // after adding up all  pAk values, divide by the total number of retrieved docs (|Rel|)
@@ -143,20 +140,20 @@ public class Evaluator {
         return result;
     }
 
-    public double calculateResponseTime(QueryComponent q) {
+    public double calculateResponseTime(QueryContext context, QueryComponent q) {
         // start timer
         long start = System.currentTimeMillis();
-        List<Posting> temp = q.getPostingsWithoutPositions(mProcessor, activeIndex);
+        List<Posting> temp = q.getPostingsWithoutPositions(context);
         long stop = System.currentTimeMillis();
 
         return ((stop - start) / 1000.0);
     }
 
-    public double calculateThroughput(QueryComponent q, int iterations) {
+    public double calculateThroughput(QueryContext context, QueryComponent q, int iterations) {
         double meanAvgResponse = 0.0;
 
         for (int i = 0; i < iterations; i++) {
-            meanAvgResponse += calculateResponseTime(q);
+            meanAvgResponse += calculateResponseTime(context, q);
         }
 
         meanAvgResponse = meanAvgResponse / iterations;
@@ -164,14 +161,14 @@ public class Evaluator {
 
     }
 
-    public double calculateMeanAvgPrecision(WeighingScheme scheme, int k) {
+    // calculates the MAP of all queries on file over the entire active corpus, ranked with the context passed in
+    public double calculateMeanAvgPrecision(QueryContext context, int k) {
         double result = 0;
         List<EvaluatedQuery> allQueries = readBulkFileQueries(0, true);
-        Driver.ActiveConfiguration.setWeightingScheme(scheme);
 
         for (EvaluatedQuery q : allQueries) {
 
-            result += calculateAvgPrecision(scheme, k, q);
+            result += calculateAvgPrecision(context, k, q);
         }
 
         return (result / allQueries.size());
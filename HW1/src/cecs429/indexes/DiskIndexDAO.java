@@ -1,36 +1,138 @@
 package cecs429.indexes;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import static edu.csulb.Driver.ActiveConfiguration.*;
 import static edu.csulb.Driver.WeighingScheme;
+import static edu.csulb.Driver.WeightEncoding;
 
-import cecs429.weights.DocTermWeight;
+import cecs429.documents.Document;
+import cecs429.documents.FileDocument;
 import cecs429.weights.DocWeight;
-import org.mapdb.BTreeMap;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
-import org.mapdb.Serializer;
 
 public class DiskIndexDAO {
+    // every postings.bin starts with this magic number and a format version so readers can tell which layout they're looking at
+    // (the original fixed-width layout had no header at all)
+    public static final int POSTINGS_MAGIC = 0x50535442;
+    // version 2: dFt, doc id gaps, tf(t,d) and position gaps are variable-byte encoded
+    // version 3: positions moved out to positions.bin; each posting keeps the offset of its positions instead
+    // version 4: lists longer than SKIP_INTERVAL start with a table of skip entries, one per block of SKIP_INTERVAL postings
+    // version 5: doc ids are assigned in sorted file name order, so indexes built from the old walk order don't line up with the corpus
+    // version 6: each skip entry also holds the block's max w(d,t) / Ld under every weighing scheme
+    // version 7: the header also says how the weights are stored (a WeightEncoding ordinal); quantized lists start with their levels
+    public static final int POSTINGS_FORMAT_VERSION = 7;
+    static final int POSTINGS_HEADER_BYTES = 12;
+    // postings are grouped into blocks of this many, and each block gets a skip entry of its last docId, the byte offset of
+    // its first posting, the byte offset of its first posting's positions, and the highest w(d,t) / Ld of its postings under
+    // every weighing scheme (as a float, rounded up so it never falls below the real value)
+    public static final int SKIP_INTERVAL = 64;
+    static final int SKIP_ENTRY_BLOCK_MAX_OFFSET = 12;
+    static final int SKIP_ENTRY_BYTES = SKIP_ENTRY_BLOCK_MAX_OFFSET + 4 * WeighingScheme.values().length;
+    // impacts.bin holds an optional second copy of every postings list for score-at-a-time ranking, sorted by impact instead of by docId
+    public static final int IMPACTS_MAGIC = 0x494D5054;
+    public static final int IMPACTS_FORMAT_VERSION = 1;
+    static final int IMPACTS_HEADER_BYTES = 8;
+    // impacts are quantized to this many levels of the term's max impact under each scheme
+    static final int IMPACT_LEVELS = 255;
+    // how much of a term's postings the writer keeps in memory when it has to go over them twice, before they spill to a temp file
+    private static final int TERM_SPILL_MEMORY_BYTES = 1 << 22;
+    // docTable.bin starts with the number of docs, followed by one fixed-width entry per docId: the byte offset of the doc's
+    // strings in docStrings.bin, the byte length of its file name and the byte length of its title (-1 if it has none)
+    private static final int DOC_TABLE_HEADER_BYTES = 4;
+    private static final int DOC_TABLE_ENTRY_BYTES = 16;
+
     //  private PositionalInvertedIndex mPosIndex;
+    private static String mCorpusPath;
     private static String mIndexPath;
     private static String mPostingsPath;
+    private static String mPositionsPath;
     private static String mDocWeightsPath;
-    private static String mDbPath;
+    private static String mDocTablePath;
+    private static String mDocStringsPath;
+    private static String mCorpusStatsPath;
+    private static String mDocStatsPath;
+    private static String mImpactsPath;
+    private static String mTermsPath;
+    private static String mDbPath; // the MapDB term tree older builds kept the vocabulary in
     private static List<Long> mByteLocations;
-    private static DB termsDb;
-    private HashMap<String, Long> mTermLocations; // maps each term to its byte location in postings.bin
+
+    // shared read-only handles that stay open for as long as the index is being queried (see open() and close())
+    private volatile TermDictionary mTermDictionary; // also loaded on its own by the first lookup when the index isn't open
+    private volatile WeightCodec mWeightCodec; // decodes the w(d,t) values in postings.bin, in whatever encoding they were written
+    private MappedFileReader mPostingsReader;
+    private MappedFileReader mPositionsReader;
+    private MappedFileReader mDocWeightsReader;
+    private MappedFileReader mDocTableReader;
+    private MappedFileReader mDocStringsReader;
+    private MappedFileReader mImpactsReader; // null when the index was written without impacts.bin
+    private int mDocumentCount = -1; // corpus stats read from corpusStats.bin by open(); -1 while the index isn't open
+    private int mAvgDocLength = -1;
+    private double[][] mDocNormalizers; // Ld of every doc under every scheme, read from docStats.bin by open()
+    private long mPositionsAddress; // running byte count of positions.bin while the index is being written
+
+    // handles for an index that is being written (see beginIndex(), writeTerm() and finishIndex())
+    private TermDictionary.Builder mWriterTerms;
+    private WeightCodec mWriterCodec;
+    private double[] mPostingTermWeights; // w(d,t) per scheme of the posting being written, indexed by scheme ordinal
+    private double[] mPostingWeights; // w(d,t) per scheme of the posting that was just written, as readers will decode it
+    private double[][] mWriterNormalizers; // Ld of every doc under every scheme, kept by writeDocWeights() for the postings that follow
+    private long[] mWriterDocLengths; // docLength of every doc, kept by writeDocWeights() so the postings' OKAPI w(d,t) never read them back
+    private int[] mWriterAvgTermFrequencies; // avg tf(t,d) of every doc, kept the same way for WACKY w(d,t)
+    private int mWriterAvgDocLength;
+    private double[] mTermMaxScores; // running max w(d,t) / Ld per scheme of the term being written
+    private double[] mPostingScores; // w(d,t) / Ld per scheme of the posting that was just written
+    private DataOutputStream mImpactsOut; // null unless impacts.bin is being written too
+    private long mImpactsAddress;
+    private ByteArrayOutputStream mImpactsBuffer;
+    private int[] mTermDocIds; // docIds of the term being written, kept for its impact-ordered copy
+    private double[][] mTermScores; // w(d,t) / Ld per scheme of each of those postings
+    private DataOutputStream mPostingsOut;
+    private FileOutputStream mPostingsFile; // the file under mPostingsOut, for filling in skip tables once their blocks are written
+    private DataOutputStream mPositionsOut;
+    private long mByteAddress;
+
+    // the term being written (see beginTerm(), addPosting() and endTerm())
+    private String mTermName;
+    private int mTermDft;
+    private int mTermPostingCount;
+    private long mTermLocation;
+    private long mTermPositionsStart;
+    private long mTermPostingsStart; // where the term's first posting starts in postings.bin, right past its skip table
+    private long mSkipTableAddress;
+    private int mTermLastDocId;
+    private long mPreviousPositionsAddress;
+    private boolean mDeferTermPostings; // whether the postings are kept in mTermSpill until endTerm() instead of written as they come
+    private TermSpill mTermSpill;
+    private int[] mBlockLastDocIds; // the skip entries of the term's blocks
+    private int[] mBlockOffsets;
+    private int[] mBlockPositionsOffsets;
+    private double[][] mBlockMaxScores;
+
+    // a single sequential read against one of the on-disk index files
+    private interface FileRead<T> {
+        T read(DataInput reader) throws IOException;
+    }
 
 
     public DiskIndexDAO(String corpusPath) {
+        mCorpusPath = corpusPath;
         mIndexPath = corpusPath + "/index";
         mDbPath = mIndexPath + "/termsMap.db";
         mPostingsPath = mIndexPath + "/postings.bin";
+        mPositionsPath = mIndexPath + "/positions.bin";
         mDocWeightsPath = mIndexPath + "/docWeights.bin";
+        mDocTablePath = mIndexPath + "/docTable.bin";
+        mDocStringsPath = mIndexPath + "/docStrings.bin";
+        mCorpusStatsPath = mIndexPath + "/corpusStats.bin";
+        mDocStatsPath = mIndexPath + "/docStats.bin";
+        mImpactsPath = mIndexPath + "/impacts.bin";
+        mTermsPath = mIndexPath + "/terms.bin";
         mByteLocations = new ArrayList<>();
 
         // create the index dir if it doesn't already exist
@@ -40,24 +142,261 @@ public class DiskIndexDAO {
         }
     }
 
+    public String getIndexPath() {
+        return mIndexPath;
+    }
+
     public boolean hasExistingIndex() {
         Path dir = Paths.get(mIndexPath).toAbsolutePath();
         Path postings = Paths.get(mPostingsPath).toAbsolutePath();
+        Path positions = Paths.get(mPositionsPath).toAbsolutePath();
         Path weights = Paths.get(mDocWeightsPath).toAbsolutePath();
 
         // only return true if all of the required files already exist
         if (Files.exists(dir) && Files.exists(postings) && Files.exists(weights)) {
+            // an index written in another postings format can't be decoded, so it has to be rebuilt
+            int version = readPostingsFormatVersion();
+            if (version != POSTINGS_FORMAT_VERSION) {
+                System.out.println("The on-disk index in '" + mIndexPath + "' was written in an older postings format (version " + version + ") and must be rebuilt.");
+                return false;
+            }
+            if (!Files.exists(positions)) {
+                return false;
+            }
+            // older builds kept their vocabulary in termsMap.db instead
+            if (!Files.exists(Paths.get(mTermsPath))) {
+                System.out.println("The on-disk index in '" + mIndexPath + "' has no term dictionary (terms.bin) and must be rebuilt.");
+                return false;
+            }
+            // without the doc table there's no way to tell which docIds the index was built with
+            if (!Files.exists(Paths.get(mDocTablePath)) || !Files.exists(Paths.get(mDocStringsPath)) || !Files.exists(Paths.get(mCorpusStatsPath))
+                    || !Files.exists(Paths.get(mDocStatsPath))) {
+                return false;
+            }
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Returns how the index's postings store their w(d,t) values, as saved in the postings.bin header, or null if it can't be read.
+     */
+    public WeightEncoding readWeightEncoding() {
+        WeightCodec codec = mWeightCodec;
+        if (codec != null) {
+            return codec.encoding();
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(mPostingsPath))) {
+            // older versions had no encoding in the header, since they always stored every weight as a double
+            if (in.readInt() != POSTINGS_MAGIC || in.readInt() < 7) {
+                return WeightEncoding.DOUBLE;
+            }
+            return WeightEncoding.values()[in.readInt()];
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    // returns the format version from the postings.bin header, or 1 for the original headerless layout
+    public int readPostingsFormatVersion() {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(mPostingsPath))) {
+            if (in.readInt() != POSTINGS_MAGIC) {
+                return 1;
+            }
+            return in.readInt();
+        } catch (IOException ex) {
+            return 1;
+        }
+    }
+
+    /**
+     * Loads the term dictionary once and maps postings.bin, positions.bin, docWeights.bin and the doc table into memory, so every query after this
+     * decodes straight from the page cache instead of re-opening the files for each term. The handles are read-only
+     * and can be shared across queries until close() is called.
+     * Queries on different threads may all call this the first time they need the index, so only the first one opens it.
+     */
+    public synchronized void open() {
+        // nothing to do if the handles are already open
+        if (isOpen()) {
+            return;
+        }
+        try {
+            TermDictionary dictionary = TermDictionary.read(mTermsPath);
+            // the impact-ordered postings are optional, so an index without them still opens
+            if (dictionary.hasImpacts() && Files.exists(Paths.get(mImpactsPath))) {
+                mImpactsReader = new MappedFileReader(mImpactsPath);
+            }
+            mPostingsReader = new MappedFileReader(mPostingsPath);
+            mPositionsReader = new MappedFileReader(mPositionsPath);
+            mDocWeightsReader = new MappedFileReader(mDocWeightsPath);
+            mDocTableReader = new MappedFileReader(mDocTablePath);
+            mDocStringsReader = new MappedFileReader(mDocStringsPath);
+            try (DataInputStream statsIn = new DataInputStream(new FileInputStream(mCorpusStatsPath))) {
+                mDocumentCount = statsIn.readInt();
+                statsIn.readLong(); // total number of tokens
+                mAvgDocLength = statsIn.readInt();
+            }
+            mDocNormalizers = readDocStats();
+            mWeightCodec = readWeightCodec();
+            // the dictionary is volatile and set last, so any thread that sees the index as open also sees everything above
+            mTermDictionary = dictionary;
+        } catch (Exception ex) {
+            System.out.println("Failed to open the on-disk index for reading; each read will open the index files on its own instead.");
+            close();
+        }
+    }
+
+    public boolean isOpen() {
+        return mTermDictionary != null && mPostingsReader != null && mPositionsReader != null && mDocWeightsReader != null
+                && mDocTableReader != null && mDocStringsReader != null;
+    }
+
+    /**
+     * Releases the shared handles opened by open(). Safe to call more than once.
+     */
+    public synchronized void close() {
+        try {
+            if (mPostingsReader != null) {
+                mPostingsReader.close();
+            }
+            if (mPositionsReader != null) {
+                mPositionsReader.close();
+            }
+            if (mDocWeightsReader != null) {
+                mDocWeightsReader.close();
+            }
+            if (mDocTableReader != null) {
+                mDocTableReader.close();
+            }
+            if (mDocStringsReader != null) {
+                mDocStringsReader.close();
+            }
+            if (mImpactsReader != null) {
+                mImpactsReader.close();
+            }
+        } catch (IOException ex) {
+            System.out.println("Failed to close the on-disk index files.");
+        }
+        mTermDictionary = null;
+        mWeightCodec = null;
+        mImpactsReader = null;
+        mPostingsReader = null;
+        mPositionsReader = null;
+        mDocWeightsReader = null;
+        mDocTableReader = null;
+        mDocStringsReader = null;
+        mDocumentCount = -1;
+        mAvgDocLength = -1;
+        mDocNormalizers = null;
+    }
+
+    // runs the read starting at the given byte location, decoding from the mapped file when the index is open
+    // and otherwise from a handle opened just for this read
+    private <T> T readFrom(MappedFileReader shared, String path, long byteLocation, FileRead<T> read) throws IOException {
+        if (shared != null) {
+            // every call gets its own cursor over the mapping, so concurrent queries don't need to lock anything
+            return read.read(shared.inputAt(byteLocation));
+        }
+        try (RandomAccessFile reader = new RandomAccessFile(path, "r")) {
+            reader.seek(byteLocation);
+            return read.read(reader);
+        }
+    }
+
+    // the codec loaded by open(), or else one loaded just once for reading an index that isn't open
+    private WeightCodec weightCodec() throws IOException {
+        WeightCodec codec = mWeightCodec;
+        if (codec != null) {
+            return codec;
+        }
+        synchronized (this) {
+            if (mWeightCodec == null) {
+                mWeightCodec = readWeightCodec();
+            }
+            return mWeightCodec;
+        }
+    }
+
+    // sets up a codec for the encoding in the postings.bin header, loading the doc stats from docWeights.bin if it needs them
+    private WeightCodec readWeightCodec() throws IOException {
+        WeightEncoding encoding = readWeightEncoding();
+        if (encoding == null) {
+            throw new IOException("Failed to read the weight encoding from the postings.bin header");
+        }
+        if (encoding != WeightEncoding.RECOMPUTED) {
+            return WeightCodec.forReading(encoding, null, null, 0);
+        }
+        int documentCount = readDocumentCount();
+        long[] docLengths = new long[Math.max(documentCount, 0)];
+        int[] avgTermFrequencies = new int[docLengths.length];
+        try (DataInputStream weightsIn = new DataInputStream(new BufferedInputStream(new FileInputStream(mDocWeightsPath)))) {
+            // each doc's entry is its Ld, docLength, byteSize and avg tf(t,d), in that order
+            for (int docId = 0; docId < documentCount; docId++) {
+                weightsIn.readDouble();
+                docLengths[docId] = weightsIn.readLong();
+                weightsIn.readLong();
+                avgTermFrequencies[docId] = weightsIn.readInt();
+            }
+        }
+        return WeightCodec.forReading(encoding, docLengths, avgTermFrequencies, readAvgDocLength());
+    }
+
+    // the dictionary loaded by open(), or else one loaded just once for lookups against an index that isn't open; null if terms.bin can't be read
+    private TermDictionary termDictionary() {
+        TermDictionary dictionary = mTermDictionary;
+        if (dictionary != null) {
+            return dictionary;
+        }
+        synchronized (this) {
+            if (mTermDictionary == null) {
+                try {
+                    mTermDictionary = TermDictionary.read(mTermsPath);
+                } catch (IOException ex) {
+                    System.out.println("Error reading from on disk index: No term dictionary was found in the provided index directory");
+                }
+            }
+            return mTermDictionary;
+        }
+    }
+
     public List<Long> writeIndex(Index index, String corpusPath) {
         System.out.println("Writing the index to disk...");
-        // start timer
-        long start = System.currentTimeMillis();
         Collections.sort(index.getVocabulary());
+
+        // initialize necessary structs for the results list
+        List<Long> results = new ArrayList<>();
+
+        try {
+            beginIndex();
+            for (String term : index.getVocabulary()) {
+                long byteLocation = writeTerm(term, index.getPostings(term));
+                if (byteLocation >= 0) {
+                    results.add(byteLocation);
+                }
+            }
+            finishIndex();
+        } catch (FileNotFoundException ex) {
+            System.out.println("Failed to write the index to disk because the file does not exist");
+        } catch (IOException ex) {
+            System.out.println("Failed to finish writing the index to disk");
+        }
+        return results;
+    }
+
+    /**
+     * Starts writing a new on-disk index by replacing postings.bin, positions.bin and terms.bin and writing the postings header.
+     * writeDocWeights() must be called first, since the postings' w(d,t) and each term's max scores are worked out from its doc stats.
+     * When writeImpactPostings is on, an impact-ordered copy of every postings list is written to impacts.bin as well.
+     * Each term must then be written (in sorted order), either all at once with writeTerm() or a posting at a time with beginTerm(),
+     * addPosting() and endTerm(), before the files are closed with finishIndex().
+     */
+    public void beginIndex() throws IOException {
+        if (mWriterDocLengths == null) {
+            throw new IOException("the doc weights have to be written before the index");
+        }
+        // the files are about to be replaced, so any handles from a previous load are stale
+        close();
         File indexDir = new File(mIndexPath);
         // make sure there is no current index folder in the given path before indexing
         if (indexDir.exists()) {
@@ -74,135 +413,472 @@ public class DiskIndexDAO {
             postingsBin.delete();
         }
 
-        // initialize necessary structs for the results list and the DB writers
-        List<Long> results = new ArrayList<>();
-        mTermLocations = new HashMap<>();
+        // the term tree of an older build would only be left behind to go stale
+        File termsDb = new File(mDbPath);
+        if (termsDb.exists()) {
+            termsDb.delete();
+        }
+        mTermMaxScores = new double[WeighingScheme.values().length];
+        mPostingScores = new double[WeighingScheme.values().length];
+        mWriterCodec = WeightCodec.forWriting(postingsWeightEncoding);
+        mPostingTermWeights = new double[WeighingScheme.values().length];
+        mBlockLastDocIds = new int[0];
+        mBlockOffsets = new int[0];
+        mBlockPositionsOffsets = new int[0];
+        mBlockMaxScores = new double[0][];
+        mPostingWeights = new double[WeighingScheme.values().length];
+
+        // impacts need every doc's Ld, so they can only be written after writeDocWeights(); a stale copy from an older build has to go either way
+        File impactsBin = new File(mImpactsPath);
+        if (impactsBin.exists()) {
+            impactsBin.delete();
+        }
+        if (writeImpactPostings && mWriterNormalizers != null) {
+            mImpactsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(impactsBin)));
+            mImpactsOut.writeInt(IMPACTS_MAGIC);
+            mImpactsOut.writeInt(IMPACTS_FORMAT_VERSION);
+            mImpactsAddress = IMPACTS_HEADER_BYTES;
+            mImpactsBuffer = new ByteArrayOutputStream();
+            mTermDocIds = new int[SKIP_INTERVAL];
+            mTermScores = new double[WeighingScheme.values().length][SKIP_INTERVAL];
+        }
+        // every term's byte location, dFt and max w(d,t) / Ld under every weighing scheme (and impacts.bin location) go into the term dictionary
+        mWriterTerms = new TermDictionary.Builder(WeighingScheme.values().length, mImpactsOut != null);
+
+        // setup a buffered output stream for postings.bin; without the buffer every single byte would be its own write to the file
+        mPostingsFile = new FileOutputStream(postingsBin);
+        mPostingsOut = new DataOutputStream(new BufferedOutputStream(mPostingsFile));
+
+        // the term positions go to their own file so queries that don't need them never have to read past them
+        mPositionsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mPositionsPath)));
+        mPositionsAddress = 0;
+        mTermSpill = new TermSpill(indexDir, TERM_SPILL_MEMORY_BYTES);
 
+        // write the header first so readers can identify the format
+        mPostingsOut.writeInt(POSTINGS_MAGIC);
+        mPostingsOut.writeInt(POSTINGS_FORMAT_VERSION);
+        mPostingsOut.writeInt(postingsWeightEncoding.ordinal());
+
+        // start a byte counter right after the header that will increment by the number of bytes everytime something new is written to the file
+        mByteAddress = POSTINGS_HEADER_BYTES;
+    }
+
+    /**
+     * Writes the term's postings to the index started by beginIndex() and records its byte location, dFt and max scores in the
+     * term dictionary. Returns that byte location, or -1 if the term couldn't be written.
+     */
+    public long writeTerm(String term, List<Posting> postings) {
         try {
-            // set up a  B+ tree that maps all the on-disk terms to their byte locations
-            DB termsDb = DBMaker.fileDB(mDbPath).make();
-            BTreeMap<String, Long> termsMap = termsDb.treeMap("map").keySerializer(Serializer.STRING).valueSerializer(Serializer.LONG)
-                    .counterEnable()
-                    .createOrOpen();
+            beginTerm(term, postings.size());
+            for (Posting p : postings) {
+                long positionsAddress = mPositionsAddress;
+                mPositionsAddress = writePositions(mPositionsOut, p, mPositionsAddress);
+                addPosting(p.getDocumentId(), p.getTermPositionCount(), positionsAddress);
+            }
+        } catch (IOException ex) {
+            System.out.println("Failed to write to disk for term ' " + term + "' with the posting: " + postings);
+        }
+        return endTerm();
+    }
 
+    /**
+     * Starts writing a term with the given dFt to the index started by beginIndex(). Each of its postings must then be added
+     * in docId order with addPosting() before the term is finished with endTerm(), so the term's postings never have to be
+     * held in memory all at once.
+     * <p>
+     * The list starts with dFt and the byte location in positions.bin where the term's positions begin, followed by the levels
+     * of its quantized weights if the weights are quantized.
+     * If there are more than SKIP_INTERVAL postings, that is followed by a skip table holding one fixed-width entry per block of SKIP_INTERVAL
+     * postings: the block's last docId, the byte offset of its first posting past the end of the table, the byte offset of its first
+     * posting's positions past the term's positions start, and the block's max w(d,t) / Ld for each weighing scheme
+     * Each posting's data is then written in the order: docId (as a gap), w(d,t) values (in the index's WeightEncoding), tf(t,d), and the number of bytes between the start of
+     * the previous posting's positions and this one's in positions.bin (0 for the first posting of a block); the term positions themselves
+     * (as gaps) {p1, p2...} are written to positions.bin
+     * dFt, the docId gaps, tf(t,d), the positions offsets and the position gaps are variable-byte encoded
+     */
+    public void beginTerm(String term, int dFt) throws IOException {
+        mTermName = term;
+        mTermDft = dFt;
+        mTermLocation = mByteAddress;
+        mTermPostingCount = 0;
+        Arrays.fill(mTermMaxScores, 0.0);
+        if (mImpactsOut != null && mTermDocIds.length < dFt) {
+            mTermDocIds = new int[dFt];
+            for (int s = 0; s < mTermScores.length; s++) {
+                mTermScores[s] = new double[dFt];
+            }
+        }
 
-            // setup output streams for postings.bin and docWeights.bin
-            FileOutputStream postingsStream = new FileOutputStream(postingsBin);
-            DataOutputStream postingsOut = new DataOutputStream(postingsStream);
+        // there is only a single dFt value for a list of postings, so write it to file first
+        mByteAddress += VariableByteCodec.write(mPostingsOut, dFt);
+        // followed by where this term's positions start in positions.bin
+        mTermPositionsStart = mPositionsAddress;
+        mByteAddress += VariableByteCodec.writeLong(mPostingsOut, mTermPositionsStart);
+
+        mWriterCodec.beginTerm();
+        // quantized weights need the term's min and max w(d,t) before any posting can be written, so the postings are kept
+        // aside until endTerm() and written then
+        mDeferTermPostings = mWriterCodec.needsTermRange();
+        if (mDeferTermPostings) {
+            mTermSpill.reset();
+        }
+        else {
+            startTermPostings();
+        }
+    }
 
-            // start a byte counter at 0 that will increment by 4 bytes everytime something new is written to the file
-            // initialize both approaches to 0 before counting any terms
-            long byteAddress = 0;
+    /**
+     * Adds the next posting of the term started by beginTerm(): the first count entries of positions are its term positions.
+     */
+    public void addPosting(int docId, int[] positions, int count) throws IOException {
+        long positionsAddress = mPositionsAddress;
+        mPositionsAddress = writePositions(mPositionsOut, positions, count, mPositionsAddress);
+        addPosting(docId, count, positionsAddress);
+    }
 
-            for (String term : index.getVocabulary()) {
-                List<Posting> currPostings = index.getPostings(term);
-                //write the current term's byte location to the RDB B+ tree by adding the vals to the map using .put()
-                try {
-                    termsMap.put(term, byteAddress);
-                    results.add(byteAddress);
-                } catch (Exception ex) {
-                    System.out.println("Failed to write the byte address to DB for the term: " + term);
-                }
-                // update byteAddress after writing
-                try {
-                    byteAddress = writePostings(postingsOut, currPostings, byteAddress);
-                 //   byteAddress += 4;
-                } catch (IOException ex) {
-                    System.out.println("Failed to write to disk for term ' " + term + "' with the posting: " + currPostings);
+    // the posting's positions have already been written to positions.bin, starting at the given address
+    private void addPosting(int docId, int termFrequency, long positionsAddress) throws IOException {
+        if (mDeferTermPostings) {
+            // observe() only looks at the weights the codec stores
+            calculateTermWeights(docId, termFrequency);
+            mWriterCodec.observe(mPostingTermWeights);
+            mTermSpill.add(docId, termFrequency, mPositionsAddress - positionsAddress);
+        }
+        else {
+            writePosting(docId, termFrequency, positionsAddress);
+        }
+    }
+
+    /**
+     * Finishes the term started by beginTerm(): writes out any postings that were held back, fills in its skip table, and
+     * records its byte location, dFt and max scores in the term dictionary. Returns that byte location, or -1 if the term
+     * couldn't be written.
+     */
+    public long endTerm() {
+        String term = mTermName;
+        long byteLocation = mTermLocation;
+        try {
+            if (mDeferTermPostings) {
+                startTermPostings();
+                try (DataInputStream spilled = mTermSpill.open()) {
+                    int docId = 0;
+                    long positionsAddress = mTermPositionsStart;
+                    for (int i = mTermSpill.size(); i > 0; i--) {
+                        docId += VariableByteCodec.read(spilled);
+                        int termFrequency = VariableByteCodec.read(spilled);
+                        writePosting(docId, termFrequency, positionsAddress);
+                        positionsAddress += VariableByteCodec.readLong(spilled);
+                    }
                 }
+                mTermSpill.reset();
             }
-            termsDb.close();
-        } catch (FileNotFoundException ex) {
-            System.out.println("Failed to write the index to disk because the file does not exist");
+            if (mTermPostingCount != mTermDft) {
+                throw new IOException("expected " + mTermDft + " postings but " + mTermPostingCount + " were added");
+            }
+            writeSkipTable();
+        } catch (IOException ex) {
+            System.out.println("Failed to write to disk for term ' " + term + "'. " + ex);
+            return -1;
         }
-        return results;
+
+        long impactsLocation = -1;
+        if (mImpactsOut != null) {
+            try {
+                impactsLocation = mImpactsAddress;
+                mImpactsAddress = writeImpacts(mImpactsOut, term, mTermDft, mImpactsAddress);
+            } catch (Exception ex) {
+                System.out.println("Failed to write the impact-ordered postings to disk for the term: " + term);
+            }
+        }
+        try {
+            mWriterTerms.add(term, byteLocation, mTermDft, mTermMaxScores, impactsLocation);
+        } catch (Exception ex) {
+            System.out.println("Failed to add the term '" + term + "' to the term dictionary");
+            byteLocation = -1;
+        }
+        return byteLocation;
     }
 
     /**
-     * writes a list of posting for a given term
-     * Each posting's data is written in the order: docId (as a gap), w(d,t) values, tf(t,d), and finally the list of term positions (as gap) {p1, p2...}
-     * returns back a long value to indicate how many total bytes of the active file were used up by the list of postings
+     * Flushes and closes the files of the index started by beginIndex() and writes out its term dictionary.
      */
-    public long writePostings(DataOutputStream writer, List<Posting> termPostings, long byteAddress) throws IOException {
-        // there is only a single dFt value for a list of postings, so write it to file first
-        int dFt = termPostings.size();
-        writer.writeInt(dFt);
-        byteAddress += 4;
-
-        //  before iterating through each posting we can take the first docId as-is (without calculating gaps)
-        int docId = termPostings.get(0).getDocumentId();
-        for (int i = 0; i < dFt; i++) {
-            // if this is not the first posting for a given term, the docId must be re-assigned using the gap between itself and the previous docId
-            if (i > 0) {
-                int oldId = termPostings.get(i - 1).getDocumentId();
-                int currId = termPostings.get(i).getDocumentId();
-                docId = (currId - oldId);
+    public void finishIndex() throws IOException {
+        mPostingsOut.close();
+        mPositionsOut.close();
+        if (mImpactsOut != null) {
+            mImpactsOut.close();
+        }
+        mTermSpill.close();
+        mWriterTerms.write(mTermsPath);
+        mPostingsOut = null;
+        mPostingsFile = null;
+        mPositionsOut = null;
+        mWriterTerms = null;
+        mWriterCodec = null;
+        mTermSpill = null;
+        mPostingTermWeights = null;
+        mPostingWeights = null;
+        mWriterNormalizers = null;
+        mWriterDocLengths = null;
+        mWriterAvgTermFrequencies = null;
+        mImpactsOut = null;
+        mImpactsBuffer = null;
+        mTermDocIds = null;
+        mTermScores = null;
+        mBlockLastDocIds = null;
+        mBlockOffsets = null;
+        mBlockPositionsOffsets = null;
+        mBlockMaxScores = null;
+    }
+
+    // writes the levels of the term's quantized weights (if any) and leaves room for its skip table, which writeSkipTable() fills in
+    // once the postings it points into have been written
+    private void startTermPostings() throws IOException {
+        mByteAddress += mWriterCodec.writeTermHeader(mPostingsOut);
+
+        int blockCount = (mTermDft + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+        if (mBlockLastDocIds.length < blockCount) {
+            int capacity = Math.max(blockCount, 2 * mBlockLastDocIds.length);
+            mBlockLastDocIds = new int[capacity];
+            mBlockOffsets = new int[capacity];
+            mBlockPositionsOffsets = new int[capacity];
+            mBlockMaxScores = new double[capacity][WeighingScheme.values().length];
+        }
+        mSkipTableAddress = mByteAddress;
+        // a list that fits in a single block can't skip anything, so it doesn't get a table
+        if (blockCount > 1) {
+            long tableBytes = (long) blockCount * SKIP_ENTRY_BYTES;
+            for (long i = 0; i < tableBytes; i++) {
+                mPostingsOut.write(0);
             }
+            mByteAddress += tableBytes;
+        }
+        mTermPostingsStart = mByteAddress;
+        mTermLastDocId = 0;
+    }
 
-            // write docId before any other postings data
-            writer.writeInt(docId);
-            byteAddress += 4;
+    // encodes the term's next posting into postings.bin and raises the max scores of its block and the term to cover it
+    private void writePosting(int docId, int termFrequency, long positionsAddress) throws IOException {
+        int i = mTermPostingCount++;
+        if (i >= mTermDft) {
+            throw new IOException("more postings were added than the term's dFt of " + mTermDft);
+        }
+
+        // every new block starts its positions offsets over from its own entry in the skip table
+        int block = i / SKIP_INTERVAL;
+        if (i % SKIP_INTERVAL == 0) {
+            mBlockOffsets[block] = (int) (mByteAddress - mTermPostingsStart);
+            mBlockPositionsOffsets[block] = (int) (positionsAddress - mTermPositionsStart);
+            Arrays.fill(mBlockMaxScores[block], 0.0);
+            mPreviousPositionsAddress = positionsAddress;
+        }
+        mBlockLastDocIds[block] = docId;
+
+        // write docId (as the gap from the previous one) before any other postings data
+        mByteAddress += VariableByteCodec.write(mPostingsOut, docId - mTermLastDocId);
+        mTermLastDocId = docId;
+
+        // write the weights for the current posting and keep its scores for the max scores
+        calculateTermWeights(docId, termFrequency);
+        mByteAddress = writeTermWeights(mPostingsOut, docId, mByteAddress);
+        for (int s = 0; s < mPostingScores.length; s++) {
+            mBlockMaxScores[block][s] = Math.max(mBlockMaxScores[block][s], mPostingScores[s]);
+            mTermMaxScores[s] = Math.max(mTermMaxScores[s], mPostingScores[s]);
+        }
+        if (mImpactsOut != null) {
+            mTermDocIds[i] = docId;
+            for (int s = 0; s < mPostingScores.length; s++) {
+                mTermScores[s][i] = mPostingScores[s];
+            }
+        }
 
-            // use the current byteAddress to write the weights for the current posting and use the result to increment
-            Posting currPosting = termPostings.get(i);
-            byteAddress = writeTermWeights(writer, currPosting, byteAddress);
+        // tf(t,d) is the number of term positions
+        mByteAddress += VariableByteCodec.write(mPostingsOut, termFrequency);
 
-            // find tf(t,d) from the number of term locations and write it to file
-            List<Integer> positions = currPosting.getTermPositions();
-            int termFrequency = positions.size(); // tf(t,d)
-            writer.writeInt(termFrequency);
-            byteAddress += 4;
+        // point this posting at its positions by recording how far they start past the previous posting's positions
+        mByteAddress += VariableByteCodec.writeLong(mPostingsOut, positionsAddress - mPreviousPositionsAddress);
+        mPreviousPositionsAddress = positionsAddress;
+    }
 
-            // use the current byteCount to write the current list of term positions and use the result to increment it
-//            long positionIncrement = writePositions(byteAddress, positions);
-//            byteAddress += positionIncrement;
-            byteAddress = writePositions(writer, positions, byteAddress);
+    // fills in the skip table startTermPostings() left room for, now that the offsets and max scores of its blocks are known
+    private void writeSkipTable() throws IOException {
+        int blockCount = (mTermDft + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+        if (blockCount <= 1) {
+            return;
+        }
+        ByteBuffer table = ByteBuffer.allocate(blockCount * SKIP_ENTRY_BYTES);
+        for (int b = 0; b < blockCount; b++) {
+            table.putInt(mBlockLastDocIds[b]);
+            table.putInt(mBlockOffsets[b]);
+            table.putInt(mBlockPositionsOffsets[b]);
+            for (double maxScore : mBlockMaxScores[b]) {
+                table.putFloat(roundUp(maxScore));
+            }
+        }
+        table.flip();
+        // the placeholder has to reach the file before it's written over, or flushing it later would undo the table
+        mPostingsOut.flush();
+        FileChannel channel = mPostingsFile.getChannel();
+        long address = mSkipTableAddress;
+        while (table.hasRemaining()) {
+            address += channel.write(table, address);
         }
-        // return the final byteAddress after incrementing everything written
-        return byteAddress;
     }
 
     /**
-     * writes a list of term positions as gaps
+     * writes the impact-ordered copy of the postings list that endTerm() just finished
+     * The term starts with one int per weighing scheme: the byte offset of that scheme's list, past the end of the offsets
+     * Each list is its number of segments and its max impact (w(q,t) * w(d,t) / Ld, as a float rounded up), followed by the segments
+     * from the highest impact to the lowest: the segment's impact as a level out of IMPACT_LEVELS of the max impact (rounded up),
+     * the number of postings in it, and their docIds as gaps in increasing order
+     * everything but the offsets and the max impact is variable-byte encoded
+     * returns back a long value to indicate how many total bytes of impacts.bin were used up
+     */
+    private long writeImpacts(DataOutputStream writer, String term, int dFt, long byteAddress) throws IOException {
+        WeighingScheme[] schemes = WeighingScheme.values();
+        mImpactsBuffer.reset();
+        DataOutputStream listWriter = new DataOutputStream(mImpactsBuffer);
+        int[] listOffsets = new int[schemes.length];
+        int[] levels = new int[dFt];
+        int[] levelStarts = new int[IMPACT_LEVELS + 2];
+        int[] sortedDocIds = new int[dFt];
+
+        for (WeighingScheme scheme : schemes) {
+            int s = scheme.ordinal();
+            listOffsets[s] = mImpactsBuffer.size();
+            // w(q,t) only depends on dFt and N (every doc written by writeDocWeights()), so it's the same for every query the term shows up in
+            double wQt = scheme.getInstance().calculateWqt(dFt, mWriterDocLengths.length);
+
+            double maxImpact = 0;
+            for (int i = 0; i < dFt; i++) {
+                double impact = mTermScores[s][i] * wQt;
+                if (impact > maxImpact && !Double.isInfinite(impact)) {
+                    maxImpact = impact;
+                }
+            }
+            float storedMax = roundUp(maxImpact);
+
+            // bucket the postings by level (counting sort keeps each bucket in docId order), then write the buckets from the top level down
+            Arrays.fill(levelStarts, 0);
+            for (int i = 0; i < dFt; i++) {
+                double impact = mTermScores[s][i] * wQt;
+                int level = 0;
+                if (storedMax > 0) {
+                    level = Double.isInfinite(impact) ? IMPACT_LEVELS : (int) Math.ceil(impact / storedMax * IMPACT_LEVELS);
+                    level = Math.max(0, Math.min(IMPACT_LEVELS, level));
+                }
+                levels[i] = level;
+                levelStarts[level + 1]++;
+            }
+            int segmentCount = 0;
+            for (int level = 0; level <= IMPACT_LEVELS; level++) {
+                if (levelStarts[level + 1] > 0) {
+                    segmentCount++;
+                }
+                levelStarts[level + 1] += levelStarts[level];
+            }
+            int[] next = levelStarts.clone();
+            for (int i = 0; i < dFt; i++) {
+                sortedDocIds[next[levels[i]]++] = mTermDocIds[i];
+            }
+
+            VariableByteCodec.write(listWriter, segmentCount);
+            listWriter.writeFloat(storedMax);
+            for (int level = IMPACT_LEVELS; level >= 0; level--) {
+                int start = levelStarts[level];
+                int end = levelStarts[level + 1];
+                if (start == end) {
+                    continue;
+                }
+                VariableByteCodec.write(listWriter, level);
+                VariableByteCodec.write(listWriter, end - start);
+                int lastDocId = 0;
+                for (int i = start; i < end; i++) {
+                    VariableByteCodec.write(listWriter, sortedDocIds[i] - lastDocId);
+                    lastDocId = sortedDocIds[i];
+                }
+            }
+        }
+
+        for (int offset : listOffsets) {
+            writer.writeInt(offset);
+        }
+        mImpactsBuffer.writeTo(writer);
+        return byteAddress + 4L * schemes.length + mImpactsBuffer.size();
+    }
+
+    // the float closest to the value might be just under it, which would make it a bound that doesn't hold
+    private static float roundUp(double value) {
+        float rounded = (float) value;
+        return rounded < value ? Math.nextUp(rounded) : rounded;
+    }
+
+    /**
+     * writes the term positions of the provided posting as gaps
      * returns back a long value to indicate how many total bytes of the active file were used up by the list of postings
      */
-    public long writePositions(DataOutputStream writer, List<Integer> positions, long byteAddress) throws IOException {
+    public long writePositions(DataOutputStream writer, Posting p, long byteAddress) throws IOException {
 
         //  before iterating through each position we can take the first term position as-is (without calculating gaps)
-        int termPosition = positions.get(0);
-        for (int i = 0; i < positions.size(); i++) {
+        int termPosition = p.getTermPosition(0);
+        for (int i = 0; i < p.getTermPositionCount(); i++) {
             // for every position after the first, re-assign it as a gap
             if (i > 0) {
-                int oldPosition = positions.get(i - 1);
-                int currPosition = positions.get(i);
-                termPosition = (currPosition - oldPosition);
+                termPosition = p.getTermPosition(i) - p.getTermPosition(i - 1);
             }
 
             // write the updated position to the file and increment the byte counter
-            writer.writeInt(termPosition);
-            byteAddress += 4;
+            byteAddress += VariableByteCodec.write(writer, termPosition);
         }
         return byteAddress;
     }
 
     /**
-     * writes the term weights of the provided posting to disk using each of the 4 weighing strategies calculated values
+     * writes the first count term positions of the given array as gaps
+     * returns back a long value to indicate how many total bytes of the active file were used up by the positions
+     */
+    public long writePositions(DataOutputStream writer, int[] positions, int count, long byteAddress) throws IOException {
+        int lastPosition = 0;
+        for (int i = 0; i < count; i++) {
+            byteAddress += VariableByteCodec.write(writer, positions[i] - lastPosition);
+            lastPosition = positions[i];
+        }
+        return byteAddress;
+    }
+
+    // works out w(d,t) of a posting under every scheme into mPostingTermWeights, with the doc stats kept by writeDocWeights()
+    private void calculateTermWeights(int docId, int termFrequency) {
+        for (WeighingScheme scheme : WeighingScheme.values()) {
+            mPostingTermWeights[scheme.ordinal()] = WeightCodec.calculateWdt(scheme, termFrequency, mWriterDocLengths[docId],
+                    mWriterAvgDocLength, mWriterAvgTermFrequencies[docId]);
+        }
+    }
+
+    /**
+     * writes the term weights of the posting (as worked out by calculateTermWeights()) to disk in the index's WeightEncoding,
+     * and keeps the posting's w(d,t) / Ld under each of them so the term's and the block's max scores can be raised to cover it
+     * the scores use the weights as they'll be decoded, so the max scores still hold when the weights are quantized
      * returns back a long value to indicate how many total bytes of the active file were used up by the list of
      * postings
      */
-    public long writeTermWeights(DataOutputStream writer, Posting p, long byteAddress) throws IOException {
-        // obtain a reference to current posting's DocTermWeight
-        DocTermWeight termWeight = p.getDocTermWeight();
-        // now use the Weight reference to calculate values with each type of weigher
+    private long writeTermWeights(DataOutputStream writer, int docId, long byteAddress) throws IOException {
+        byteAddress += mWriterCodec.writePosting(writer, mPostingTermWeights, mPostingWeights);
         for (WeighingScheme scheme : WeighingScheme.values()) {
-            termWeight.calculate(scheme);
-            writer.writeDouble(termWeight.getValue());
-            byteAddress += 8; // increment the byteAddress 8 to write each weight as a double
+            // without the doc's Ld there's no way to bound its score, so the term can never be skipped
+            double score = Double.POSITIVE_INFINITY;
+            if (mWriterNormalizers != null) {
+                double docLd = mWriterNormalizers[scheme.ordinal()][docId];
+                if (docLd > 0) {
+                    score = mPostingWeights[scheme.ordinal()] / docLd;
+                }
+            }
+            mPostingScores[scheme.ordinal()] = score;
         }
         return byteAddress;
     }
 
     public void writeDocWeights(List<DocWeight> docWeights) throws IOException {
+        close();
         // try to make a new .bin file using the mPostingsPath set at construction
         File docWeightsBin = new File(mDocWeightsPath);
         // make sure there is no other postings.bin file already in index the directory before trying to write a new one
@@ -213,15 +889,19 @@ public class DiskIndexDAO {
         try {
             // setup output streams for postings.bin and docWeights.bin
             FileOutputStream docWeightsStream = new FileOutputStream(docWeightsBin);
-            DataOutputStream docWeightsOut = new DataOutputStream(docWeightsStream);
+            DataOutputStream docWeightsOut = new DataOutputStream(new BufferedOutputStream(docWeightsStream));
 
-            int avgDocLength = 0;
+            long totalDocLength = 0;
+            long[] docLengths = new long[docWeights.size()];
+            int[] avgTermFrequencies = new int[docWeights.size()];
 
             for (DocWeight w : docWeights) {
                 double docLd = w.getValue();
                 long docLength = w.getDocLength();
                 long byteSize = w.getByteSize();
                 int avgFrequency = w.getAvgTermFrequency();
+                docLengths[w.getDocId()] = docLength;
+                avgTermFrequencies[w.getDocId()] = avgFrequency;
 
                 // write the per-doc weight data of each docWeight in the order of: docWeight, docLength, byteSize, avgTfTd,
                 // starts at byte 0
@@ -231,193 +911,389 @@ public class DiskIndexDAO {
                 docWeightsOut.writeInt(avgFrequency); // now at byte 28
                 // next DocWeight starts writing @ byte 28
 
-                avgDocLength += docLength;
+                totalDocLength += docLength;
             }
 
-            avgDocLength = avgDocLength / docWeights.size();
+            int avgDocLength = (int) (totalDocLength / docWeights.size());
             // as soon as the avgDocLength is caclulated for the first time assign it to the global corpus
             activeCorpus.setAvgDocLength(avgDocLength);
             docWeightsOut.writeInt(avgDocLength);// will be written at byte location: (docWeightsOut.length() - 4)
+            docWeightsOut.close();
+
+            // the postings that follow work out their OKAPI and WACKY w(d,t) from these, instead of reading them back from the file
+            mWriterDocLengths = docLengths;
+            mWriterAvgTermFrequencies = avgTermFrequencies;
+            mWriterAvgDocLength = avgDocLength;
+
+            writeCorpusStats(docWeights.size(), totalDocLength, avgDocLength);
+            writeDocStats(docWeights);
         } catch (Exception ex) {
             System.out.println("Failed to write doc weights to disk for document:");
         }
     }
 
-    public long readByteLocation(String term) {
-        // only proceed to read from disk if they havent been loaded yet
-        long location = 0;
-        // try to initialize the db as a child file of the overall index directory
-        try {
-            // if possible, create a B+ tree that maps all the on-disk terms to their byte locations
-            termsDb = DBMaker.fileDB(mDbPath).make();
-            BTreeMap<String, Long> termsMap = termsDb.treeMap("map").keySerializer(Serializer.STRING).valueSerializer(Serializer.LONG)
-                    .open();
+    /**
+     * Writes the corpus-wide stats that queries need to corpusStats.bin, in the order: N (the number of docs), the total
+     * number of tokens, and the average doc length. Loading an index only needs these instead of the corpus itself.
+     */
+    private void writeCorpusStats(int documentCount, long totalDocLength, int avgDocLength) throws IOException {
+        try (DataOutputStream statsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mCorpusStatsPath)))) {
+            statsOut.writeInt(documentCount);
+            statsOut.writeLong(totalDocLength);
+            statsOut.writeInt(avgDocLength);
+        }
+    }
 
-            location = termsMap.get(term);
+    /**
+     * Writes Ld for every doc under every weighing scheme to docStats.bin. The file is columnar: after the number of
+     * schemes and the number of docs comes one column per scheme (in WeighingScheme order) holding that scheme's Ld
+     * for each docId in order, so a whole column can be loaded straight into an array.
+     */
+    private void writeDocStats(List<DocWeight> docWeights) throws IOException {
+        WeighingScheme[] schemes = WeighingScheme.values();
+        double[][] normalizers = new double[schemes.length][docWeights.size()];
+        try (DataOutputStream statsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mDocStatsPath)))) {
+            statsOut.writeInt(schemes.length);
+            statsOut.writeInt(docWeights.size());
+            for (WeighingScheme scheme : schemes) {
+                for (DocWeight w : docWeights) {
+                    double docLd = w.getValue(scheme);
+                    normalizers[scheme.ordinal()][w.getDocId()] = docLd;
+                    statsOut.writeDouble(docLd);
+                }
+            }
+        }
+        mWriterNormalizers = normalizers;
+    }
 
-            termsDb.close();
-        } catch (NullPointerException ex) {
-            System.out.println("Failed to retrieve postings for the query term '" + term + "' because it was not found in any of the documents in the active corpus. ");
+    // reads every column of docStats.bin into memory, indexed by [scheme ordinal][docId]
+    private double[][] readDocStats() throws IOException {
+        try (DataInputStream statsIn = new DataInputStream(new BufferedInputStream(new FileInputStream(mDocStatsPath)))) {
+            int schemeCount = statsIn.readInt();
+            int documentCount = statsIn.readInt();
+            double[][] normalizers = new double[schemeCount][documentCount];
+            for (int scheme = 0; scheme < schemeCount; scheme++) {
+                for (int docId = 0; docId < documentCount; docId++) {
+                    normalizers[scheme][docId] = statsIn.readDouble();
+                }
+            }
+            return normalizers;
         }
-        return location;
     }
 
-    public List<String> readVocabulary() {
-        // initialize necessary structs
-        List<String> results = new ArrayList<>();
-        // check if the term locations have already been loaded into the class field before reading them from the disk
-        if (mTermLocations != null && mTermLocations.size() > 0) {
-            results.addAll(mTermLocations.keySet());
-            return results;
+    /**
+     * Returns the number of docs the index was built from, as saved in corpusStats.bin, or -1 if it can't be read.
+     */
+    public int readDocumentCount() {
+        if (mDocumentCount >= 0) {
+            return mDocumentCount;
+        }
+        try (DataInputStream statsIn = new DataInputStream(new FileInputStream(mCorpusStatsPath))) {
+            return statsIn.readInt();
+        } catch (IOException ex) {
+            System.out.println("Failed to read the corpus stats from disk.");
+            return -1;
         }
+    }
 
-//        // only proceed to read vocab from disk if it hasn't already been loaded
-//        if (DB termsDb = null;
-//        BTreeMap<String, Long> termsMap = null;
+    /**
+     * Writes the docId -> file name/title table: docTable.bin holds a fixed-width entry for every docId (so any doc can be
+     * looked up directly) and docStrings.bin holds the UTF-8 bytes of all the names and titles back to back.
+     * File names are saved relative to the corpus directory, so the corpus can be moved along with its index.
+     */
+    public void writeDocTable(List<Document> documents) throws IOException {
+        close();
+        Path corpusDir = Paths.get(mCorpusPath).toAbsolutePath();
+        try (DataOutputStream tableOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mDocTablePath)));
+             DataOutputStream stringsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mDocStringsPath)))) {
+            tableOut.writeInt(documents.size());
+
+            long stringsAddress = 0;
+            for (Document d : documents) {
+                String fileName = "";
+                if (d instanceof FileDocument) {
+                    fileName = corpusDir.relativize(((FileDocument) d).getFilePath().toAbsolutePath()).toString();
+                }
+                byte[] fileNameBytes = fileName.getBytes(StandardCharsets.UTF_8);
+                String title = d.getTitle();
+                byte[] titleBytes = title == null ? new byte[0] : title.getBytes(StandardCharsets.UTF_8);
+
+                tableOut.writeLong(stringsAddress);
+                tableOut.writeInt(fileNameBytes.length);
+                tableOut.writeInt(title == null ? -1 : titleBytes.length);
+                stringsOut.write(fileNameBytes);
+                stringsOut.write(titleBytes);
+                stringsAddress += fileNameBytes.length + titleBytes.length;
+            }
+        }
+    }
 
-        // try to initialize the db as a child file of the overall index directory
+    // returns the number of docs in the doc table, or -1 if it can't be read
+    public int readDocTableSize() {
         try {
-            // if possible open the existing B+ tree that maps all the currently written on-disk terms to their byte locations
-            termsDb = DBMaker.fileDB(mDbPath).make();
-            BTreeMap<String, Long> termsMap =
-                    termsDb.treeMap("map").keySerializer(Serializer.STRING).valueSerializer(Serializer.LONG).open(); // since this is a read-only function, we need to open the map, not openOrClose
-
-            // extract the list of all terms from the map B+ tree as an in-memory List iterator
-            Iterator<String> termsOnDisk = termsMap.keyIterator();
-            // now we can add all the on-disk terms to an in-memory return value by extracting terms from the iterator until the stream ends
-            while (termsOnDisk.hasNext()) {
-                results.add(termsOnDisk.next());
-            }
-            termsDb.close();
+            return readFrom(mDocTableReader, mDocTablePath, 0, DataInput::readInt);
         } catch (Exception ex) {
-            System.out.println("Error reading from on disk index: No on-disk B+ tree was found in the provided index directory");
-            return null;
+            System.out.println("Failed to read the doc table from disk.");
+            return -1;
         }
-        return results;
     }
 
-    public List<Posting> readPostingsWithoutPositions(long byteLocation) {
-        int termDocFrequency = 0;
-        double termDocWeight = 0.0;
-        List<Posting> results = new ArrayList<>();
-
-        try (RandomAccessFile reader = new RandomAccessFile(mPostingsPath, "r")) {
-
-            // start by seeking to the byte location of the term - this is where all of its postings data begins
-            // now we can easily find any other postings data we need by incrementing the necessary amount of bytes from that initial position
-            reader.seek(byteLocation);
-
-            // first get tf(d) (the amount of docs the term occurs in) which should be at the exact byte indicated by the termLocation
-            int dFt = reader.readInt();
+    /**
+     * Returns the doc's file name (relative to the corpus directory) as it was when the index was built.
+     */
+    public String readDocFileName(int docId) {
+        return readDocString(docId, false);
+    }
 
-            // before iterating through all the term's docs, initialize the first docId to 0
-            int currentDocId = 0;
+    /**
+     * Returns the doc's title as it was when the index was built, or null if it had none.
+     */
+    public String readDocTitle(int docId) {
+        return readDocString(docId, true);
+    }
 
-            // now we can use that tf(d) value find the rest of the term's data
-            for (int i = 0; i < dFt; i++) {
-                // for the first value only, read the doc ID as-is with no gaps
-                if (i == 0) {
-                    currentDocId = reader.readInt();
-                }
-                // otherwise, read the next docId and use it to increment the gap between itself and the previous docId
-                else {
-                    currentDocId += reader.readInt();
+    private String readDocString(int docId, boolean title) {
+        try {
+            long entryLocation = DOC_TABLE_HEADER_BYTES + (long) docId * DOC_TABLE_ENTRY_BYTES;
+            long[] entry = readFrom(mDocTableReader, mDocTablePath, entryLocation,
+                    reader -> new long[]{reader.readLong(), reader.readInt(), reader.readInt()});
+            long stringLocation = entry[0];
+            int length = (int) entry[1];
+            if (title) {
+                stringLocation += entry[1];
+                length = (int) entry[2];
+                if (length < 0) {
+                    return null;
                 }
-                // use the ordinal of the active weighing scheme to find out how many bytes(if any) to jump before reading the correct weight type
-                int weightBytes = 8 * (activeWeighingScheme.ordinal());
-                reader.skipBytes(weightBytes);
-                // read w(d,t)
-                double currentWeight = reader.readDouble();
+            }
+            byte[] bytes = new byte[length];
+            readFrom(mDocStringsReader, mDocStringsPath, stringLocation, reader -> {
+                reader.readFully(bytes);
+                return bytes;
+            });
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (Exception ex) {
+            System.out.println("Failed to read the doc table entry for docId " + docId + " from disk.");
+            return null;
+        }
+    }
 
-                // skip again for the remaining number of weighing schemes
-                int remainingWeightBytes = 8 * (WeighingScheme.values().length - activeWeighingScheme.ordinal() - 1);
-                reader.skipBytes(remainingWeightBytes);
+    // returns the term's rank in the term dictionary, or -1 if it isn't in the index; this runs on every search thread, so it's
+    // left to the interactive Driver to tell the user about terms that aren't there
+    private static int findTerm(TermDictionary dictionary, String term) {
+        return dictionary == null ? -1 : dictionary.find(term);
+    }
 
-                // read tf(t,d)
-                int currTermFrequency = reader.readInt();
+    public long readByteLocation(String term) {
+        TermDictionary dictionary = termDictionary();
+        int rank = findTerm(dictionary, term);
+        // 0 is inside the postings header, so it can never be mistaken for a real postings list
+        return rank < 0 ? 0 : dictionary.postingsOffset(rank);
+    }
 
+    /**
+     * Returns the highest w(d,t) / Ld of any of the term's postings under every weighing scheme (indexed by the scheme's
+     * ordinal), or null if the term isn't in the index.
+     */
+    public double[] readMaxScores(String term) {
+        TermDictionary dictionary = termDictionary();
+        int rank = dictionary == null ? -1 : dictionary.find(term);
+        return rank < 0 ? null : dictionary.maxScores(rank);
+    }
 
+    /**
+     * Returns dFt, the number of docs the term appears in, or 0 if it isn't in the index.
+     */
+    public int readDocumentFrequency(String term) {
+        TermDictionary dictionary = termDictionary();
+        int rank = dictionary == null ? -1 : dictionary.find(term);
+        return rank < 0 ? 0 : dictionary.documentFrequency(rank);
+    }
 
-                // now jump ahead by the 4 * tf(t,d) to get to the next docId without reading each term position
-                reader.skipBytes(4 * currTermFrequency);
+    /**
+     * Opens a cursor over the term's postings that decodes the weights (and reports the max scores) of the given scheme, with a
+     * single dictionary lookup for both its byte location and its max scores.
+     */
+    public DiskPostingsCursor openPostingsCursor(String term, WeighingScheme scheme) {
+        TermDictionary dictionary = termDictionary();
+        int rank = findTerm(dictionary, term);
+        if (rank < 0) {
+            return openPostingsCursor(0, null, scheme);
+        }
+        return openPostingsCursor(dictionary.postingsOffset(rank), dictionary.maxScores(rank), scheme);
+    }
 
-                // instantiate a generic posting and set its data with the values read from file
-                Posting currPosting = new Posting(currentDocId);
-                currPosting.setDocTermWeight(currentWeight);
-                currPosting.setTermFrequency(currTermFrequency);
-                results.add(currPosting);
-            }
-        } catch (IOException ex) {
-            ex.printStackTrace();
+    /**
+     * Opens a cursor over the term's impact-ordered postings for the given weighing scheme. Returns null if the index was written
+     * without impacts.bin, so the caller can fall back to the docId ordered postings.
+     */
+    public ImpactCursor openImpactCursor(String term, WeighingScheme scheme) {
+        if (!isOpen()) {
+            open();
+        }
+        MappedFileReader impacts = mImpactsReader;
+        TermDictionary dictionary = mTermDictionary;
+        if (impacts == null || dictionary == null) {
+            return null;
+        }
+        int rank = dictionary.find(term);
+        if (rank < 0) {
+            return ImpactCursor.empty();
+        }
+        long byteLocation = dictionary.impactsOffset(rank);
+        long listOffset = impacts.getInt(byteLocation + 4L * scheme.ordinal());
+        return new ImpactCursor(impacts, byteLocation + 4L * WeighingScheme.values().length + listOffset);
+    }
+
+    public List<String> readVocabulary() {
+        // initialize necessary structs
+        List<String> results = new ArrayList<>();
+        // decode the whole term dictionary in one pass, already in sorted order
+        TermDictionary dictionary = termDictionary();
+        if (dictionary == null) {
+            return null;
         }
+        results.addAll(dictionary.terms(0, dictionary.size()));
         return results;
     }
 
-    public List<Posting> readPostings(long byteLocation) {
-        int termDocFrequency = 0;
-            double termDocWeight = 0.0;
-            List<Posting> results = new ArrayList<>();
+    /**
+     * Returns every term in the index that starts with the prefix, in sorted order.
+     */
+    public List<String> readVocabulary(String prefix) {
+        TermDictionary dictionary = termDictionary();
+        if (dictionary == null) {
+            return new ArrayList<>();
+        }
+        return dictionary.terms(dictionary.prefixStart(prefix), dictionary.prefixEnd(prefix));
+    }
 
-            try {
+    public List<Posting> readPostingsWithoutPositions(long byteLocation) {
+        List<Posting> results = new ArrayList<>();
+        // readByteLocation() falls back to 0 for terms that aren't in the index, and no postings list can start inside the header
+        if (byteLocation < POSTINGS_HEADER_BYTES) {
+            return results;
+        }
 
-                RandomAccessFile reader = new RandomAccessFile(mPostingsPath, "r");
-            // start by seeking to the byte location of the term - this is where all of its postings data begins
+        try {
+            WeightCodec codec = weightCodec();
+            // start at the byte location of the term - this is where all of its postings data begins
             // now we can easily find any other postings data we need by incrementing the necessary amount of bytes from that initial position
-            reader.seek(byteLocation);
+            readFrom(mPostingsReader, mPostingsPath, byteLocation, reader -> {
+
+                // first get tf(d) (the amount of docs the term occurs in) which should be at the exact byte indicated by the termLocation
+                int dFt = VariableByteCodec.read(reader);
+                // the positions live in positions.bin, so their starting offset is never needed here
+                VariableByteCodec.readLong(reader);
+                // the weights aren't decoded, so neither are the quantized weights' levels
+                reader.skipBytes(codec.termHeaderBytes());
+                // every posting is decoded anyway, so there's no use for the skip table either
+                skipSkipTable(reader, dFt);
+
+                // before iterating through all the term's docs, initialize the first docId to 0
+                int currentDocId = 0;
+
+                // now we can use that tf(d) value find the rest of the term's data
+                for (int i = 0; i < dFt; i++) {
+                    // for the first value only, read the doc ID as-is with no gaps
+                    if (i == 0) {
+                        currentDocId = VariableByteCodec.read(reader);
+                    }
+                    // otherwise, read the next docId and use it to increment the gap between itself and the previous docId
+                    else {
+                        currentDocId += VariableByteCodec.read(reader);
+                    }
+                    // skip the posting's weights; a whole list is only read for its docs, tf(t,d) and positions, and ranked queries
+                    // get w(d,t) under their own scheme from a cursor instead
+                    reader.skipBytes(codec.postingBytes());
 
-            // first get tf(d) (the amount of docs the term occurs in) which should be at the exact byte indicated by the termLocation
-            int dFt = reader.readInt();
+                    // read tf(t,d)
+                    int currTermFrequency = VariableByteCodec.read(reader);
 
-            // before iterating through all the term's docs, initialize the first docId to 0
-            int currentDocId = 0;
+                    // skip the positions offset to get to the next docId; positions.bin is never touched
+                    VariableByteCodec.skip(reader, 1);
 
-            // now we can use that tf(d) value find the rest of the term's data
-            for (int i = 0; i < dFt; i++) {
-                // for the first value only, read the doc ID as-is with no gaps
-                if (i == 0) {
-                    currentDocId = reader.readInt();
-                }
-                // otherwise, read the next docId and use it to increment the gap between itself and the previous docId
-                else {
-                    currentDocId += reader.readInt();
+                    // instantiate a generic posting and set its data with the values read from file
+                    Posting currPosting = new Posting(currentDocId);
+                    currPosting.setTermFrequency(currTermFrequency);
+                    results.add(currPosting);
                 }
+                return results;
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        return results;
+    }
 
-                // use the ordinal of the active weighing scheme to find out how many bytes(if any) to jump before reading the correct weight type
-                int weightBytes = 8 * (activeWeighingScheme.ordinal());
-                reader.skipBytes(weightBytes);
+    public List<Posting> readPostings(long byteLocation) {
+        List<Posting> results = new ArrayList<>();
+        // readByteLocation() falls back to 0 for terms that aren't in the index, and no postings list can start inside the header
+        if (byteLocation < POSTINGS_HEADER_BYTES) {
+            return results;
+        }
 
-                // read w(d,t)
-                double currentWeight = reader.readDouble();
+        try {
+            WeightCodec codec = weightCodec();
+            // start at the byte location of the term - this is where all of its postings data begins
+            // now we can easily find any other postings data we need by incrementing the necessary amount of bytes from that initial position
+            readFrom(mPostingsReader, mPostingsPath, byteLocation, reader -> {
+
+                // first get tf(d) (the amount of docs the term occurs in) which should be at the exact byte indicated by the termLocation
+                int dFt = VariableByteCodec.read(reader);
+                // the positions of every posting are stored back to back in positions.bin starting at this offset
+                long positionsStart = VariableByteCodec.readLong(reader);
+                // the weights aren't decoded, so neither are the quantized weights' levels
+                reader.skipBytes(codec.termHeaderBytes());
+                // every posting is decoded anyway, so there's no use for the skip table either
+                skipSkipTable(reader, dFt);
+
+                // before iterating through all the term's docs, initialize the first docId to 0
+                int currentDocId = 0;
+
+                // now we can use that tf(d) value find the rest of the term's data
+                for (int i = 0; i < dFt; i++) {
+                    // for the first value only, read the doc ID as-is with no gaps
+                    if (i == 0) {
+                        currentDocId = VariableByteCodec.read(reader);
+                    }
+                    // otherwise, read the next docId and use it to increment the gap between itself and the previous docId
+                    else {
+                        currentDocId += VariableByteCodec.read(reader);
+                    }
 
-                // skip again for the remaining number of weighing schemes
-                int remainingWeightBytes = 8 * (WeighingScheme.values().length - activeWeighingScheme.ordinal() - 1);
-                reader.skipBytes(remainingWeightBytes);
+                    // skip the posting's weights; a whole list is only read for its docs, tf(t,d) and positions, and ranked queries
+                    // get w(d,t) under their own scheme from a cursor instead
+                    reader.skipBytes(codec.postingBytes());
 
-                // read tf(t,d)
-                int currTermFrequency = reader.readInt();
+                    // read tf(t,d)
+                    int currTermFrequency = VariableByteCodec.read(reader);
 
-                List<Integer> termPositions = new ArrayList<>();
+                    // the positions are read in posting order below, so the per-posting offset isn't needed to find them
+                    VariableByteCodec.skip(reader, 1);
 
-                int currTermPosition = 0;
-                try {
-                    for (int j = 0; j < currTermFrequency; j++) {
-                        if (j == 0) {
-                            currTermPosition = reader.readInt();
-                        } else {
-                            currTermPosition += reader.readInt();
-                        }
-                        termPositions.add(currTermPosition);
-                    }
-                } catch (EOFException ex) {
-                    ex.printStackTrace();
+                    // instantiate a generic posting and set its data with the values read from file
+                    Posting currPosting = new Posting(currentDocId, new int[currTermFrequency], 0);
+                    currPosting.setTermFrequency(currTermFrequency);
+                    results.add(currPosting);
                 }
 
-                // instantiate a generic posting and set its data with the values read from file
-                Posting currPosting = new Posting(currentDocId, termPositions);
-                currPosting.setDocTermWeight(currentWeight);
-                currPosting.setTermFrequency(currTermFrequency);
-                results.add(currPosting);
-            }
+                // now fill in each posting's tf(t,d) term positions from positions.bin
+                return readFrom(mPositionsReader, mPositionsPath, positionsStart, positionsReader -> {
+                    for (Posting currPosting : results) {
+                        int currTermPosition = 0;
+                        try {
+                            for (int j = 0; j < currPosting.getTermFrequency(); j++) {
+                                currTermPosition += VariableByteCodec.read(positionsReader);
+                                currPosting.addTermPosition(currTermPosition);
+                            }
+                        } catch (EOFException ex) {
+                            ex.printStackTrace();
+                        }
+                    }
+                    return results;
+                });
+            });
         }
         catch (IOException ex) {
             ex.printStackTrace();
@@ -425,13 +1301,54 @@ public class DiskIndexDAO {
         return results;
     }
 
+    private static void skipSkipTable(DataInput reader, int dFt) throws IOException {
+        int blockCount = (dFt + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+        if (blockCount > 1) {
+            reader.skipBytes(blockCount * SKIP_ENTRY_BYTES);
+        }
+    }
+
+    /**
+     * Opens a cursor over the postings list starting at the given byte location, which decodes the given scheme's weights and
+     * reports its max score (from the per-scheme max scores of readMaxScores()) as its upper bound. Unlike readPostings(), the
+     * cursor only decodes the postings it is moved onto, and can use the list's skip table to jump past whole blocks of them
+     * with advance().
+     */
+    public DiskPostingsCursor openPostingsCursor(long byteLocation, double[] maxScores, WeighingScheme scheme) {
+        if (!isOpen()) {
+            open();
+        }
+        // readByteLocation() falls back to 0 for terms that aren't in the index, and no postings list can start inside the header
+        if (!isOpen() || byteLocation < POSTINGS_HEADER_BYTES) {
+            return DiskPostingsCursor.empty(scheme);
+        }
+        return new DiskPostingsCursor(mPostingsReader, mPositionsReader, mWeightCodec, byteLocation, maxScores, scheme);
+    }
+
+    /**
+     * Returns Ld of the doc under the given scheme. Once the index is open this is just an array lookup.
+     */
+    public double readDocWeight(int docId, WeighingScheme scheme) {
+        if (mDocNormalizers != null) {
+            return mDocNormalizers[scheme.ordinal()][docId];
+        }
+        try {
+            int documentCount = readFrom(null, mDocStatsPath, 4, DataInput::readInt);
+            long byteLocation = 8 + ((long) scheme.ordinal() * documentCount + docId) * 8;
+            return readFrom(null, mDocStatsPath, byteLocation, DataInput::readDouble);
+        } catch (Exception ex) {
+            System.out.println("Failed to read the doc weights from disk. '");
+            ex.printStackTrace();
+            return 0.0;
+        }
+    }
+
     public double readDocWeight(long byteLocation) {
         //HashMap<Integer, Double> results = new HashMap<>();
         double weight = 0.0;
 
-        try (RandomAccessFile reader = new RandomAccessFile(mDocWeightsPath, "r")) {
-            reader.seek(byteLocation);
-            weight = reader.readDouble();
+        try {
+            weight = readFrom(mDocWeightsReader, mDocWeightsPath, byteLocation, DataInput::readDouble);
         } catch (Exception ex) {
             System.out.println("Failed to read the doc weights from disk. '");
             ex.printStackTrace();
@@ -443,9 +1360,8 @@ public class DiskIndexDAO {
         long weight = 0;
         long byteLocation = (docId * 28) + 8;
 
-        try (RandomAccessFile reader = new RandomAccessFile(mDocWeightsPath, "r")) {
-            reader.seek(byteLocation);
-            weight = reader.readLong();
+        try {
+            weight = readFrom(mDocWeightsReader, mDocWeightsPath, byteLocation, DataInput::readLong);
         } catch (Exception ex) {
             System.out.println("Failed to read the doc length from disk. '");
             ex.printStackTrace();
@@ -457,9 +1373,8 @@ public class DiskIndexDAO {
         long weight = 0;
         long byteLocation = (docId * 28) + 16;
 
-        try (RandomAccessFile reader = new RandomAccessFile(mDocWeightsPath, "r")) {
-            reader.seek(byteLocation);
-            weight = reader.readLong();
+        try {
+            weight = readFrom(mDocWeightsReader, mDocWeightsPath, byteLocation, DataInput::readLong);
         } catch (Exception ex) {
             System.out.println("Failed to read the doc byte size from disk. '");
             ex.printStackTrace();
@@ -471,9 +1386,8 @@ public class DiskIndexDAO {
         int weight = 0;
         long byteLocation = (docId * 28) + 24;
 
-        try (RandomAccessFile reader = new RandomAccessFile(mDocWeightsPath, "r")) {
-            reader.seek(byteLocation);
-            weight = reader.readInt();
+        try {
+            weight = readFrom(mDocWeightsReader, mDocWeightsPath, byteLocation, DataInput::readInt);
         } catch (Exception ex) {
             System.out.println("Failed to read the doc byte size from disk. '");
             ex.printStackTrace();
@@ -482,31 +1396,20 @@ public class DiskIndexDAO {
     }
 
     public int readAvgDocLength() {
+        // once the index is open the average is already in memory
+        if (mAvgDocLength >= 0) {
+            return mAvgDocLength;
+        }
         int weight = 0;
 
-        try (RandomAccessFile reader = new RandomAccessFile(mDocWeightsPath, "r")) {
-            long byteLocation = reader.length() - 4;
-            reader.seek(byteLocation);
-            weight = reader.readInt();
+        try {
+            // the average is the last int written to the file
+            long fileLength = mDocWeightsReader != null ? mDocWeightsReader.length() : new File(mDocWeightsPath).length();
+            weight = readFrom(mDocWeightsReader, mDocWeightsPath, fileLength - 4, DataInput::readInt);
         } catch (Exception ex) {
             System.out.println("Failed to read the doc byte size from disk. '");
             ex.printStackTrace();
         }
         return weight;
     }
-
-    public double readDocTermWeight(long byteLocation) {
-        double weight = 0.0;
-
-        try (RandomAccessFile reader = new RandomAccessFile(mPostingsPath, "r")) {
-            reader.seek(byteLocation);
-            weight = reader.readDouble();
-            reader.close();
-        } catch (Exception ex) {
-            System.out.println("Failed to read the doc weights from disk. '");
-            ex.printStackTrace();
-        }
-        return weight;
-    }
 }
-
@@ -1,31 +1,33 @@
 package cecs429.indexes;
 
+import cecs429.documents.DirectoryCorpus;
 import cecs429.documents.Document;
+import cecs429.documents.DocumentPrefetcher;
 import cecs429.documents.DocumentCorpus;
 import cecs429.text.AdvancedTokenProcessor;
 import cecs429.text.EnglishTokenStream;
 import static edu.csulb.Driver.ActiveConfiguration.*;
+import static edu.csulb.Driver.WeighingScheme;
 
 import cecs429.weights.DocTermWeight;
 import cecs429.weights.DocWeight;
-import org.mapdb.BTreeMap;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
-import org.mapdb.Serializer;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class DiskPositionalIndex implements Index {
     private static List<String> mVocabulary;
-    private static Index mIndexInMemory;
+    private static PositionalInvertedIndex mIndexInMemory;
     private static String mPath;
     private static List<DocWeight> mDocWeights;
     private static List<Long> mByteLocations;
-//    private static HashMap<String, Long> mTermLocations;
     private static HashMap<String, List<Posting>> mBasicTermPostings;
 
 
@@ -34,55 +36,45 @@ public class DiskPositionalIndex implements Index {
         mVocabulary = new ArrayList<>();
         mIndexInMemory = new PositionalInvertedIndex(mVocabulary);
         mDocWeights = new ArrayList<>();
-//        mTermLocations = new ArrayList<>();
     }
 
     public void initializeInMemoryIndex() throws IOException {
         System.out.println("Initializing the in-memory index ...");
         // start timer
         long start = System.currentTimeMillis();
-        AdvancedTokenProcessor processor = new AdvancedTokenProcessor();
 
+        List<Document> documents = new ArrayList<>();
         for (Document d : activeCorpus.getDocuments()) {
-            EnglishTokenStream stream = new EnglishTokenStream(d.getContent());
-
-            Iterable<String> tokens = stream.getTokens();
-            HashMap<String, Integer> termCounts = new HashMap<>();
-
-            // store a list of w(d,t) references for all the terms in the current doc
-            List<DocTermWeight> wDts = new ArrayList<>();
-//            HashMap<String, Integer> termFrequencies = new HashMap<>();
-
-            // initialize a counter to keep track of the term positions of tokens found within each document
-            int tokenPosition = 0;
-            for (String token : tokens) {
-                // process each token into a term(s)
-                List<String> terms = processor.processToken(token);
-
-                // iterate through each term while keeping a running total of all the times it is found in the current doc
-                for (String term : terms) {
-                    // whenever a new term is added to the index, a DocTermWeight is automatically created (or updated, if one already exists for this term-doc combo) by the Posting class
-                    mIndexInMemory.addTerm(term, d.getId(), tokenPosition);
-
-                    // since the postings lists are always sorted, we can reference the new Posting for the term that was just added by accessing the most recent item in its postings list
-                    List<Posting> termPostings = mIndexInMemory.getPostings(term);
-                    Posting lastPosting = termPostings.get(termPostings.size() - 1);
-
-                    // now we obtain a reference to the term's wDt through that recently added posting
-                    DocTermWeight termWeight = lastPosting.getDocTermWeight();
-                    wDts.add(termWeight);
-                }
-                // only increment the position when moving on to a new token; if normalizing a token produces more than one term, they will all be posted at the same position
-                tokenPosition += 1;
-            }
+            documents.add(d);
+        }
 
-            DocWeight docWeight =  new DocWeight(d.getId(), wDts);
-            docWeight.setDocLength(tokenPosition);
-            docWeight.setByteSize(d.getByteSize());
+        // have a few I/O threads read the docs into memory ahead of the threads that tokenize them
+        DocumentPrefetcher prefetcher = documentLoadingThreads > 0 ? new DocumentPrefetcher(documentLoadingThreads, documentPrefetchBudgetMb * 1024L * 1024L) : null;
+        try {
+            // with a memory budget, build the index in bounded-size blocks that are merged on disk instead of all at once in memory
+            if (indexingMemoryBudgetMb > 0) {
+                SpimiIndexBuilder builder = new SpimiIndexBuilder(indexDao, indexingMemoryBudgetMb * 1024L * 1024L);
+                mDocWeights = builder.build(prefetched(prefetcher, documents));
+                indexDao.writeDocTable(documents);
+                long elapsedSeconds = (long) ((System.currentTimeMillis() - start) / 1000.0);
+                System.out.println("Initialized and wrote the index in approximately " + elapsedSeconds + " seconds.");
+                // the vocabulary is only on disk, so leave it to be read back by getVocabulary() if it's ever needed
+                mVocabulary = new ArrayList<>();
+                indexDao.open();
+                return;
+            }
 
-            // after setting all the data for the current docWeight, add it to the list of doc weights and assign it to the Document objet itself so it can be referenced from other locations later on
-            mDocWeights.add(docWeight);
-            d.setWeight(docWeight);
+            int threads = Math.max(1, Math.min(indexingThreads, documents.size()));
+            if (threads == 1) {
+                indexDocuments(prefetched(prefetcher, documents), mIndexInMemory, mDocWeights);
+            }
+            else {
+                indexDocumentsInParallel(documents, threads, prefetcher);
+            }
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.close();
+            }
         }
 
         long stop = System.currentTimeMillis();
@@ -93,22 +85,121 @@ public class DiskPositionalIndex implements Index {
         indexDao.writeDocWeights(mDocWeights);
         mByteLocations = indexDao.writeIndex(mIndexInMemory, mPath);
         mVocabulary = mIndexInMemory.getVocabulary();
+        // save which file (and title) each docId belongs to, so loading the index later doesn't depend on the order the corpus is walked in
+        indexDao.writeDocTable(documents);
+
+        // keep the freshly written files open so querying right after the build doesn't re-open them for every term
+        indexDao.open();
+
+    }
+
+    private static Iterable<Document> prefetched(DocumentPrefetcher prefetcher, List<Document> documents) {
+        return prefetcher == null ? documents : prefetcher.prefetch(documents);
+    }
+
+    // tokenizes and posts the given docs (in order) into the index, adding a DocWeight for each of them to docWeights
+    private static void indexDocuments(Iterable<Document> documents, PositionalInvertedIndex index, List<DocWeight> docWeights) {
+        AdvancedTokenProcessor processor = new AdvancedTokenProcessor();
+
+        for (Document d : documents) {
+            indexDocument(d, processor, index, docWeights);
+        }
+    }
+
+    // tokenizes and posts a single doc into the index, then adds its DocWeight to docWeights
+    static void indexDocument(Document d, AdvancedTokenProcessor processor, PositionalInvertedIndex index, List<DocWeight> docWeights) {
+        EnglishTokenStream stream = new EnglishTokenStream(d.getContent());
+
+        // store a list of w(d,t) references for all the terms in the current doc
+        List<DocTermWeight> wDts = new ArrayList<>();
+
+        // the stream hands back every term along with the position of the token it came from, and the number of tokens once it's done
+        int tokenPosition = stream.processTerms(processor, (term, position) -> {
+            // whenever a new term is added to the index, a DocTermWeight is automatically created (or updated, if one already exists for this term-doc combo) by the Posting class
+            index.addTerm(term, d.getId(), position);
+
+            // since the postings lists are always sorted, we can reference the new Posting for the term that was just added by accessing the most recent item in its postings list
+            List<Posting> termPostings = index.getPostings(term);
+            Posting lastPosting = termPostings.get(termPostings.size() - 1);
+
+            // now we obtain a reference to the term's wDt through that recently added posting
+            wDts.add(lastPosting.getDocTermWeight());
+        });
+
+        DocWeight docWeight =  new DocWeight(d.getId(), wDts);
+        docWeight.setDocLength(tokenPosition);
+        docWeight.setByteSize(d.getByteSize());
 
+        // after setting all the data for the current docWeight, add it to the list of doc weights and assign it to the Document objet itself so it can be referenced from other locations later on
+        docWeights.add(docWeight);
+        d.setWeight(docWeight);
     }
 
-    // gets the index's vocabulary, term locations, and doc weights by reading them from the existing on-disk index data
+    /**
+     * Splits the docs into contiguous docId ranges and has a pool of worker threads build a partial index over each range.
+     * Since every range comes entirely after the ones before it, the partials are merged by appending each one's postings in
+     * range order, which leaves every postings list exactly as the single-threaded build would have made it.
+     */
+    private static void indexDocumentsInParallel(List<Document> documents, int threads, DocumentPrefetcher prefetcher) throws IOException {
+        // use a few more ranges than threads so a range of unusually large docs doesn't leave the other threads waiting on it
+        int rangeCount = Math.min(documents.size(), threads * 4);
+        int rangeSize = (documents.size() + rangeCount - 1) / rangeCount;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<PositionalInvertedIndex>> partialIndexes = new ArrayList<>();
+        List<List<DocWeight>> partialDocWeights = new ArrayList<>();
+        try {
+            for (int start = 0; start < documents.size(); start += rangeSize) {
+                List<Document> range = documents.subList(start, Math.min(start + rangeSize, documents.size()));
+                List<DocWeight> rangeDocWeights = new ArrayList<>();
+                partialDocWeights.add(rangeDocWeights);
+                partialIndexes.add(pool.submit(() -> {
+                    PositionalInvertedIndex partial = new PositionalInvertedIndex(new ArrayList<>());
+                    indexDocuments(prefetched(prefetcher, range), partial, rangeDocWeights);
+                    return partial;
+                }));
+            }
+
+            // merge the partials in docId order
+            for (int i = 0; i < partialIndexes.size(); i++) {
+                mIndexInMemory.appendPostings(partialIndexes.get(i).get());
+                mDocWeights.addAll(partialDocWeights.get(i));
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new IOException("Failed to build the in-memory index in parallel", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the index ready for querying using only the files in the index directory: the term dictionary, postings and
+     * doc weights are opened, the corpus stats are read from corpusStats.bin and the corpus' documents are set up from
+     * the saved doc table. No document in the corpus is opened, so loading time only depends on the size of the index metadata.
+     */
     public void load() {
         //List<String> unsorted = indexDao.readVocabulary();
         System.out.println("Loading index data from disk...");
-        //  HashMap<Integer, Double> docWeights = new HashMap<>();
-        try {
-            for (Document d : activeCorpus.getDocuments()) {
-                // Tokenize the document's content by constructing an EnglishTokenStream around the document's content.
-                EnglishTokenStream stream = new EnglishTokenStream(d.getContent());
+        // load the term dictionary and open the postings/docWeights files once so they can be shared by every query
+        indexDao.open();
+
+        // give the corpus the same docIds the index was built with, straight from the saved doc table instead of walking the corpus directory
+        if (activeCorpus instanceof DirectoryCorpus) {
+            int documentCount = indexDao.readDocTableSize();
+            List<String> fileNames = new ArrayList<>(Math.max(documentCount, 0));
+            List<String> titles = new ArrayList<>(Math.max(documentCount, 0));
+            for (int docId = 0; docId < documentCount; docId++) {
+                fileNames.add(indexDao.readDocFileName(docId));
+                titles.add(indexDao.readDocTitle(docId));
+            }
+            if (documentCount < 0 || !((DirectoryCorpus) activeCorpus).restoreDocuments(fileNames, titles)) {
+                System.out.println("Failed to load the doc table, so docIds will be assigned by walking the corpus directory instead");
+            }
+            else if (documentCount != indexDao.readDocumentCount()) {
+                System.out.println("The doc table and corpus stats on disk don't agree on the number of documents; the index may need to be rebuilt");
             }
-        } catch (NullPointerException ex) {
-            System.out.println("Failed to load vocabulary index because no documents could were found in the corpus directory");
         }
+        activeCorpus.setAvgDocLength(indexDao.readAvgDocLength());
     }
 
     /**
@@ -136,6 +227,22 @@ public class DiskPositionalIndex implements Index {
         return postings;
     }
 
+    /**
+     * Opens a cursor that decodes the term's postings one at a time straight from disk and can skip ahead with advance().
+     * The postings already hold (or can work out) w(d,t) under every scheme, so the given doc stats are never needed.
+     *
+     * @param term
+     */
+    @Override
+    public PostingsCursor getPostingsCursor(String term, WeighingScheme scheme, DiskIndexDAO docStats) {
+        return indexDao.openPostingsCursor(term, scheme);
+    }
+
+    @Override
+    public ImpactCursor getImpactCursor(String term, WeighingScheme scheme) {
+        return indexDao.openImpactCursor(term, scheme);
+    }
+
     /**
      * A (sorted) list of all terms in the index vocabulary.
      */
@@ -0,0 +1,253 @@
+package cecs429.indexes;
+
+import static edu.csulb.Driver.WeighingScheme;
+
+/**
+ * Walks a single term's postings list directly out of the mapped postings.bin, decoding one posting at a time.
+ * Nothing is read until the cursor is moved, the weights and positions of a posting are only decoded when asked for,
+ * and advance() uses the list's skip table to jump over whole blocks of postings that can't contain the target docId.
+ * A cursor only ever reports the weights of the weighing scheme it was opened for, and never writes to the mapped files,
+ * so any number of them can be walking the same lists on different threads.
+ */
+public class DiskPostingsCursor implements PostingsCursor {
+    private final MappedFileReader mPostings;
+    private final MappedFileReader mPositions;
+    private final WeightCodec mWeightCodec;
+    private final int mWeightBytes;
+    private final long mWeightLevelsStart; // where the list's quantization levels start, if it has any
+    private final int mDocFrequency;
+    private final int mBlockCount;
+    private final long mSkipTableStart; // only meaningful when mBlockCount > 1
+    private final long mDataStart;
+    private final long mPositionsStart;
+    private final double[] mMaxScores; // highest w(d,t) / Ld in the list per scheme, or null if the index doesn't have them
+    private final WeighingScheme mScheme; // the scheme whose weights and max scores the cursor reports
+
+    private int mShallowBlock; // the block advanceShallow() last moved onto; mBlockCount once it has moved past the end of the list
+    private int mIndex = -1; // index of the current posting within the list
+    private int mDocId = -1;
+    private int mTermFrequency;
+    private long mWeightsAddress;
+    private long mPositionsAddress;
+    private long mPosition; // where the next posting starts in postings.bin
+
+    DiskPostingsCursor(MappedFileReader postings, MappedFileReader positions, WeightCodec weightCodec, long byteLocation, double[] maxScores,
+                       WeighingScheme scheme) {
+        mPostings = postings;
+        mScheme = scheme;
+        mMaxScores = maxScores;
+        mPositions = positions;
+        mWeightCodec = weightCodec;
+        mWeightBytes = weightCodec.postingBytes();
+        mPosition = byteLocation;
+        mDocFrequency = readVByte();
+        mPositionsStart = readVByteLong();
+        mWeightLevelsStart = mPosition;
+        mPosition += weightCodec.termHeaderBytes();
+        mBlockCount = (mDocFrequency + DiskIndexDAO.SKIP_INTERVAL - 1) / DiskIndexDAO.SKIP_INTERVAL;
+        mSkipTableStart = mPosition;
+        if (mBlockCount > 1) {
+            mPosition += (long) mBlockCount * DiskIndexDAO.SKIP_ENTRY_BYTES;
+        }
+        mDataStart = mPosition;
+    }
+
+    // cursor over a term that isn't in the index
+    private DiskPostingsCursor(WeighingScheme scheme) {
+        mScheme = scheme;
+        mPostings = null;
+        mPositions = null;
+        mWeightCodec = null;
+        mWeightBytes = 0;
+        mWeightLevelsStart = 0;
+        mDocFrequency = 0;
+        mBlockCount = 0;
+        mSkipTableStart = 0;
+        mDataStart = 0;
+        mPositionsStart = 0;
+        mMaxScores = new double[WeighingScheme.values().length];
+    }
+
+    static DiskPostingsCursor empty(WeighingScheme scheme) {
+        return new DiskPostingsCursor(scheme);
+    }
+
+    @Override
+    public int cost() {
+        return mDocFrequency;
+    }
+
+    @Override
+    public int docId() {
+        return mDocId;
+    }
+
+    @Override
+    public int nextDoc() {
+        if (mIndex + 1 >= mDocFrequency) {
+            mIndex = mDocFrequency;
+            mDocId = NO_MORE_DOCS;
+            return mDocId;
+        }
+        mIndex++;
+        // the first docId is written as a gap from 0, so the same addition works for every posting
+        mDocId = Math.max(mDocId, 0) + readVByte();
+        mWeightsAddress = mPosition;
+        mPosition += mWeightBytes;
+        mTermFrequency = readVByte();
+        long positionsGap = readVByteLong();
+        // positions offsets start over at the first posting of every block
+        if (mIndex % DiskIndexDAO.SKIP_INTERVAL == 0) {
+            mPositionsAddress = mPositionsStart + blockPositionsOffset(mIndex / DiskIndexDAO.SKIP_INTERVAL);
+        } else {
+            mPositionsAddress += positionsGap;
+        }
+        return mDocId;
+    }
+
+    @Override
+    public int advance(int target) {
+        if (mIndex >= 0 && mDocId >= target) {
+            return mDocId;
+        }
+        if (mBlockCount > 1) {
+            int currentBlock = Math.max(mIndex, 0) / DiskIndexDAO.SKIP_INTERVAL;
+            int block = findBlock(currentBlock, target);
+            if (block >= mBlockCount) {
+                mIndex = mDocFrequency;
+                mDocId = NO_MORE_DOCS;
+                return mDocId;
+            }
+            // only jump when the target is past the block the cursor is already in; otherwise just keep decoding
+            if (block > currentBlock || (mIndex < 0 && block > 0)) {
+                mIndex = block * DiskIndexDAO.SKIP_INTERVAL - 1;
+                mDocId = blockLastDocId(block - 1);
+                mPosition = mDataStart + blockOffset(block);
+            }
+        }
+        while (nextDoc() < target) {
+        }
+        return mDocId;
+    }
+
+    @Override
+    public int termFrequency() {
+        return mTermFrequency;
+    }
+
+    @Override
+    public double weight() {
+        return mWeightCodec.weight(mScheme, mPostings, mWeightLevelsStart, mWeightsAddress, mTermFrequency, mDocId);
+    }
+
+    @Override
+    public double maxScore() {
+        if (mMaxScores == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return mMaxScores[mScheme.ordinal()];
+    }
+
+    @Override
+    public int advanceShallow(int target) {
+        if (mBlockCount <= 1) {
+            // a list without a skip table is a single block, bounded by the term's max score until the cursor runs out
+            mShallowBlock = mIndex < mDocFrequency ? 0 : mBlockCount;
+            return NO_MORE_DOCS;
+        }
+        // the cursor never moves backwards, so the block can't be before the one the cursor is in
+        mShallowBlock = findBlock(Math.max(mIndex, 0) / DiskIndexDAO.SKIP_INTERVAL, target);
+        if (mShallowBlock >= mBlockCount) {
+            return NO_MORE_DOCS;
+        }
+        return blockLastDocId(mShallowBlock);
+    }
+
+    @Override
+    public double blockMaxScore() {
+        if (mShallowBlock >= mBlockCount) {
+            return 0;
+        }
+        if (mBlockCount <= 1) {
+            return maxScore();
+        }
+        return mPostings.getFloat(mSkipTableStart + (long) mShallowBlock * DiskIndexDAO.SKIP_ENTRY_BYTES
+                + DiskIndexDAO.SKIP_ENTRY_BLOCK_MAX_OFFSET + 4L * mScheme.ordinal());
+    }
+
+    @Override
+    public int[] positions(int[] buffer) {
+        if (buffer == null || buffer.length < mTermFrequency) {
+            buffer = new int[Math.max(mTermFrequency, 8)];
+        }
+        long position = mPositionsAddress;
+        int termPosition = 0;
+        for (int i = 0; i < mTermFrequency; i++) {
+            int value = 0;
+            int current = mPositions.getByte(position++) & 0xFF;
+            while ((current & 0x80) == 0) {
+                value = (value << 7) | current;
+                current = mPositions.getByte(position++) & 0xFF;
+            }
+            termPosition += (value << 7) | (current & 0x7F);
+            buffer[i] = termPosition;
+        }
+        return buffer;
+    }
+
+    // binary search the fixed-width skip table for the first block (at or after the given one) whose last docId reaches the target
+    private int findBlock(int fromBlock, int target) {
+        int low = fromBlock;
+        int high = mBlockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockLastDocId(mid) < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int blockLastDocId(int block) {
+        if (block < 0) {
+            return 0;
+        }
+        return mPostings.getInt(mSkipTableStart + (long) block * DiskIndexDAO.SKIP_ENTRY_BYTES);
+    }
+
+    private int blockOffset(int block) {
+        if (mBlockCount <= 1) {
+            return 0;
+        }
+        return mPostings.getInt(mSkipTableStart + (long) block * DiskIndexDAO.SKIP_ENTRY_BYTES + 4);
+    }
+
+    private int blockPositionsOffset(int block) {
+        if (mBlockCount <= 1) {
+            return 0;
+        }
+        return mPostings.getInt(mSkipTableStart + (long) block * DiskIndexDAO.SKIP_ENTRY_BYTES + 8);
+    }
+
+    private int readVByte() {
+        int value = 0;
+        int current = mPostings.getByte(mPosition++) & 0xFF;
+        while ((current & 0x80) == 0) {
+            value = (value << 7) | current;
+            current = mPostings.getByte(mPosition++) & 0xFF;
+        }
+        return (value << 7) | (current & 0x7F);
+    }
+
+    private long readVByteLong() {
+        long value = 0;
+        int current = mPostings.getByte(mPosition++) & 0xFF;
+        while ((current & 0x80) == 0) {
+            value = (value << 7) | current;
+            current = mPostings.getByte(mPosition++) & 0xFF;
+        }
+        return (value << 7) | (current & 0x7F);
+    }
+}
@@ -0,0 +1,103 @@
+package cecs429.indexes;
+
+/**
+ * Walks a single term's impact-ordered postings for one weighing scheme directly out of the mapped impacts.bin.
+ * The postings are grouped into segments that share the same quantized impact (w(q,t) * w(d,t) / Ld), from the highest
+ * impact to the lowest, and the docIds inside a segment are in increasing order.
+ * <p>
+ * The cursor starts on the first segment: impact() and segmentSize() describe it, nextDoc() reads its docIds one at a
+ * time, and nextSegment() moves on to the next one.
+ */
+public class ImpactCursor {
+    private final MappedFileReader mImpacts;
+    private final double mImpactStep; // the impact of one quantized level
+    private int mSegmentsLeft;
+    private boolean mHasSegment;
+    private double mImpact;
+    private int mSegmentSize;
+    private int mPostingsLeft;
+    private int mDocId;
+    private long mPosition;
+
+    ImpactCursor(MappedFileReader impacts, long byteLocation) {
+        mImpacts = impacts;
+        mPosition = byteLocation;
+        mSegmentsLeft = readVByte();
+        float maxImpact = mImpacts.getFloat(mPosition);
+        mPosition += 4;
+        mImpactStep = (double) maxImpact / DiskIndexDAO.IMPACT_LEVELS;
+        nextSegment();
+    }
+
+    // cursor over a term that isn't in the index
+    private ImpactCursor() {
+        mImpacts = null;
+        mImpactStep = 0;
+    }
+
+    static ImpactCursor empty() {
+        return new ImpactCursor();
+    }
+
+    /**
+     * Whether the cursor is on a segment, as opposed to having run past the last one.
+     */
+    public boolean hasSegment() {
+        return mHasSegment;
+    }
+
+    /**
+     * The impact every posting in the current segment adds to its doc's score; 0 once the segments run out.
+     */
+    public double impact() {
+        return mImpact;
+    }
+
+    public int segmentSize() {
+        return mSegmentSize;
+    }
+
+    /**
+     * Returns the next docId of the current segment, or NO_MORE_DOCS once the segment has been read.
+     */
+    public int nextDoc() {
+        if (mPostingsLeft == 0) {
+            return PostingsCursor.NO_MORE_DOCS;
+        }
+        mPostingsLeft--;
+        mDocId += readVByte();
+        return mDocId;
+    }
+
+    /**
+     * Moves onto the next segment, skipping whatever is left of the current one. Returns false if there are no more segments.
+     */
+    public boolean nextSegment() {
+        while (mPostingsLeft > 0) {
+            nextDoc();
+        }
+        if (mSegmentsLeft == 0) {
+            mHasSegment = false;
+            mImpact = 0;
+            mSegmentSize = 0;
+            return false;
+        }
+        mSegmentsLeft--;
+        mHasSegment = true;
+        mImpact = readVByte() * mImpactStep;
+        mSegmentSize = readVByte();
+        mPostingsLeft = mSegmentSize;
+        mDocId = 0;
+        return true;
+    }
+
+    private int readVByte() {
+        int value = 0;
+        int current = mImpacts.getByte(mPosition++) & 0xFF;
+        while ((current & 0x80) == 0) {
+            value = (value << 7) | current;
+            current = mImpacts.getByte(mPosition++) & 0xFF;
+        }
+        return (value << 7) | (current & 0x7F);
+    }
+}
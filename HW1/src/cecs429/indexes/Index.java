@@ -3,6 +3,8 @@ package cecs429.indexes;
 import java.util.HashMap;
 import java.util.List;
 
+import static edu.csulb.Driver.WeighingScheme;
+
 /**
  * An Index can retrieve postings for a term from a data structure associating terms and the documents
  * that contain them.
@@ -20,6 +22,25 @@ public interface Index {
      */
 	List<Posting> getPostingsWithoutPositions(String term);
 
+	/**
+	 * Opens a cursor that streams the term's postings one at a time instead of materializing the whole list. Its weight()
+	 * and max scores are always for the given weighing scheme, no matter which scheme is active, so queries under different
+	 * schemes can share the index at once. Indexes that only keep tf(t,d) work out w(d,t) with the doc stats in indexDao
+	 * (the same index a ranked query reads Ld from); indexes that can do better than walking the list from getPostings()
+	 * override this.
+	 */
+	default PostingsCursor getPostingsCursor(String term, WeighingScheme scheme, DiskIndexDAO indexDao) {
+		return new ListPostingsCursor(getPostings(term), scheme, indexDao);
+	}
+
+	/**
+	 * Opens a cursor over the term's impact-ordered postings for the given weighing scheme, or returns null if the index
+	 * doesn't keep its postings in impact order too.
+	 */
+	default ImpactCursor getImpactCursor(String term, WeighingScheme scheme) {
+		return null;
+	}
+
 	/**
 	 * A (sorted) list of all terms in the index vocabulary.
 	 */
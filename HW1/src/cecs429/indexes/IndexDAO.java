@@ -1,7 +1,5 @@
 package cecs429.indexes;
 
-import org.mapdb.BTreeMap;
-
 import java.util.HashMap;
 import java.util.List;
 
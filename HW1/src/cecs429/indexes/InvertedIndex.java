@@ -73,7 +73,8 @@ public class InvertedIndex implements Index {
      */
     @Override
     public List<Posting> getPostingsWithoutPositions(String term) {
-        return null;
+        // this index never stores positions in the first place
+        return getPostings(term);
     }
 
     @Override
@@ -0,0 +1,106 @@
+package cecs429.indexes;
+
+import java.util.List;
+
+import static edu.csulb.Driver.WeighingScheme;
+
+/**
+ * A PostingsCursor over a postings list that is already in memory.
+ */
+class ListPostingsCursor implements PostingsCursor {
+	private final List<Posting> mPostings;
+	private final WeighingScheme mScheme; // the scheme weight() works out w(d,t) under
+	private final DiskIndexDAO mIndexDao; // where the doc stats of the OKAPI and WACKY w(d,t) are read from
+	private int mIndex = -1;
+	private int mDocId = -1;
+
+	ListPostingsCursor(List<Posting> postings, WeighingScheme scheme, DiskIndexDAO indexDao) {
+		mPostings = postings;
+		mScheme = scheme;
+		mIndexDao = indexDao;
+	}
+
+	@Override
+	public int nextDoc() {
+		mIndex++;
+		return updateDocId();
+	}
+
+	@Override
+	public int advance(int target) {
+		if (mIndex >= 0 && mDocId >= target) {
+			return mDocId;
+		}
+		// gallop ahead to bracket the target, then binary search inside the bracket
+		int low = mIndex + 1;
+		int step = 1;
+		int high = low;
+		while (high < size() && mPostings.get(high).getDocumentId() < target) {
+			low = high + 1;
+			high += step;
+			step <<= 1;
+		}
+		high = Math.min(high, size());
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (mPostings.get(mid).getDocumentId() < target) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		mIndex = low;
+		return updateDocId();
+	}
+
+	@Override
+	public int docId() {
+		return mDocId;
+	}
+
+	@Override
+	public int termFrequency() {
+		return current().getTermPositionCount();
+	}
+
+	@Override
+	public double weight() {
+		return current().getDocTermWeight().getValue(mScheme, mIndexDao);
+	}
+
+	@Override
+	public int[] positions(int[] buffer) {
+		Posting posting = current();
+		int count = posting.getTermPositionCount();
+		if (buffer == null || buffer.length < count) {
+			buffer = new int[Math.max(count, 8)];
+		}
+		for (int i = 0; i < count; i++) {
+			buffer[i] = posting.getTermPosition(i);
+		}
+		return buffer;
+	}
+
+	@Override
+	public int cost() {
+		return size();
+	}
+
+	private int size() {
+		return mPostings == null ? 0 : mPostings.size();
+	}
+
+	private Posting current() {
+		return mPostings.get(mIndex);
+	}
+
+	private int updateDocId() {
+		if (mIndex >= size()) {
+			mIndex = size();
+			mDocId = NO_MORE_DOCS;
+		} else {
+			mDocId = current().getDocumentId();
+		}
+		return mDocId;
+	}
+}
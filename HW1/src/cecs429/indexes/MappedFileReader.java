@@ -0,0 +1,224 @@
+package cecs429.indexes;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only view of an on-disk index file that is mapped into memory with FileChannel.map, so reading a value is
+ * a plain memory access instead of a syscall. A single MappedByteBuffer can't address more than 2 GB, so the file is
+ * mapped as a series of fixed-size chunks.
+ * <p>
+ * All reads take an absolute byte position and never move any shared state, so one reader can be used by any
+ * number of queries at the same time.
+ */
+public class MappedFileReader implements Closeable {
+    // 1 GB per chunk keeps every offset within a chunk inside the int range a ByteBuffer needs
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    // each chunk also maps the first few bytes of the next one, so a value is never split between two chunks
+    private static final int CHUNK_OVERLAP = 8;
+
+    private final FileChannel mChannel;
+    private final MappedByteBuffer[] mChunks;
+    private final long mLength;
+
+    public MappedFileReader(String path) throws IOException {
+        mChannel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        mLength = mChannel.size();
+
+        int chunkCount = (int) Math.max(1, (mLength + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        mChunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long start = (long) i << CHUNK_BITS;
+            long size = Math.min(CHUNK_SIZE + CHUNK_OVERLAP, mLength - start);
+            mChunks[i] = mChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, size));
+        }
+    }
+
+    public long length() {
+        return mLength;
+    }
+
+    public byte getByte(long position) {
+        return mChunks[chunkOf(position)].get(offsetOf(position));
+    }
+
+    public short getShort(long position) {
+        return mChunks[chunkOf(position)].getShort(offsetOf(position));
+    }
+
+    public int getInt(long position) {
+        return mChunks[chunkOf(position)].getInt(offsetOf(position));
+    }
+
+    public long getLong(long position) {
+        return mChunks[chunkOf(position)].getLong(offsetOf(position));
+    }
+
+    public float getFloat(long position) {
+        return mChunks[chunkOf(position)].getFloat(offsetOf(position));
+    }
+
+    public double getDouble(long position) {
+        return mChunks[chunkOf(position)].getDouble(offsetOf(position));
+    }
+
+    /**
+     * Returns a DataInput that decodes the mapped file sequentially starting at the given byte position. Each call
+     * returns an independent cursor, so concurrent readers never see each other's position.
+     */
+    public DataInput inputAt(long position) {
+        return new MappedDataInput(position);
+    }
+
+    private static int chunkOf(long position) {
+        return (int) (position >>> CHUNK_BITS);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) (position & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * The mapped buffers are released by the garbage collector once nothing references them; closing only releases
+     * the underlying file channel.
+     */
+    @Override
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    // sequential cursor over the mapped file that reads the same big-endian values a DataOutputStream writes
+    private class MappedDataInput implements DataInput {
+        private long mPosition;
+
+        private MappedDataInput(long position) {
+            mPosition = position;
+        }
+
+        private void require(int bytes) throws EOFException {
+            if (mPosition + bytes > mLength) {
+                throw new EOFException("Attempted to read past the end of the mapped index file");
+            }
+        }
+
+        @Override
+        public void readFully(byte[] b) throws IOException {
+            readFully(b, 0, b.length);
+        }
+
+        @Override
+        public void readFully(byte[] b, int off, int len) throws IOException {
+            require(len);
+            for (int i = 0; i < len; i++) {
+                b[off + i] = getByte(mPosition++);
+            }
+        }
+
+        @Override
+        public int skipBytes(int n) {
+            int skipped = (int) Math.max(0, Math.min(n, mLength - mPosition));
+            mPosition += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            require(1);
+            return getByte(mPosition++);
+        }
+
+        @Override
+        public int readUnsignedByte() throws IOException {
+            return readByte() & 0xFF;
+        }
+
+        @Override
+        public short readShort() throws IOException {
+            require(2);
+            short value = mChunks[chunkOf(mPosition)].getShort(offsetOf(mPosition));
+            mPosition += 2;
+            return value;
+        }
+
+        @Override
+        public int readUnsignedShort() throws IOException {
+            return readShort() & 0xFFFF;
+        }
+
+        @Override
+        public char readChar() throws IOException {
+            return (char) readShort();
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            require(4);
+            int value = getInt(mPosition);
+            mPosition += 4;
+            return value;
+        }
+
+        @Override
+        public long readLong() throws IOException {
+            require(8);
+            long value = getLong(mPosition);
+            mPosition += 8;
+            return value;
+        }
+
+        @Override
+        public float readFloat() throws IOException {
+            return Float.intBitsToFloat(readInt());
+        }
+
+        @Override
+        public double readDouble() throws IOException {
+            require(8);
+            double value = getDouble(mPosition);
+            mPosition += 8;
+            return value;
+        }
+
+        // the index files don't hold any lines of text, but this reads one the same way DataInputStream and RandomAccessFile do:
+        // every byte up to a '\n', '\r' or "\r\n" (which is skipped) as a char of its own, or null if the file has already ended
+        @Override
+        public String readLine() {
+            if (mPosition >= mLength) {
+                return null;
+            }
+            StringBuilder line = new StringBuilder();
+            while (mPosition < mLength) {
+                int c = getByte(mPosition++) & 0xFF;
+                if (c == '\n') {
+                    break;
+                }
+                if (c == '\r') {
+                    if (mPosition < mLength && getByte(mPosition) == '\n') {
+                        mPosition++;
+                    }
+                    break;
+                }
+                line.append((char) c);
+            }
+            return line.toString();
+        }
+
+        @Override
+        public String readUTF() throws IOException {
+            return DataInputStream.readUTF(this);
+        }
+    }
+}
@@ -2,9 +2,17 @@ package cecs429.indexes;
 
 import java.util.*;
 
+import static edu.csulb.Driver.WeighingScheme;
+
 public class PositionalInvertedIndex implements Index {
+    // rough heap cost of the objects behind each term, posting and position; only used to tell when a SPIMI block is full
+    private static final int TERM_OVERHEAD_BYTES = 96; // HashMap entry, String and postings ArrayList
+    private static final int POSTING_OVERHEAD_BYTES = 200; // Posting with its DocTermWeight, DocWeight and positions array
+    private static final int POSITION_BYTES = 4;
+
     private final HashMap<String, List<Posting>> mIndex;
     private final List<String> mVocabulary;
+    private long mEstimatedBytes;
 
     public PositionalInvertedIndex(Collection<String> vocabulary) {
         mVocabulary = new ArrayList<String>();
@@ -21,6 +29,7 @@ public class PositionalInvertedIndex implements Index {
      * @param termPosition
      */
     public void addTerm(String term, int documentId, int termPosition) {
+        mEstimatedBytes += POSITION_BYTES;
         // first check if the term is already in the index by trying to access its postings in the index
         List<Posting> postingsInIndex = mIndex.get(term);
 
@@ -39,6 +48,7 @@ public class PositionalInvertedIndex implements Index {
                 Posting newPosting = new Posting(documentId, termPosition);
                 // add a new posting with the docId and termPosition to the HashMap index
                 postingsInIndex.add(newPosting);
+                mEstimatedBytes += POSTING_OVERHEAD_BYTES;
 
                 // after adding a new term, re-sort the list of postings by their documentId's
                 ///postingsInIndex.sort(Comparator.comparingInt(Posting::getDocumentId));
@@ -52,7 +62,37 @@ public class PositionalInvertedIndex implements Index {
             newPostingsList.add(newPosting);
             // add the new term and new postingsList to the HashMap index
             mIndex.put(term, newPostingsList);
+            mEstimatedBytes += TERM_OVERHEAD_BYTES + 2L * term.length() + POSTING_OVERHEAD_BYTES;
+        }
+    }
+
+    /**
+     * Appends every postings list of the given index onto the end of this index's list for the same term.
+     * Every docId in the given index must come after all the docIds already in this one, so the lists stay sorted.
+     *
+     * @param later
+     */
+    public void appendPostings(PositionalInvertedIndex later) {
+        for (Map.Entry<String, List<Posting>> entry : later.mIndex.entrySet()) {
+            List<Posting> postingsInIndex = mIndex.get(entry.getKey());
+            if (postingsInIndex == null) {
+                mIndex.put(entry.getKey(), entry.getValue());
+            } else {
+                postingsInIndex.addAll(entry.getValue());
+            }
         }
+        mEstimatedBytes += later.mEstimatedBytes;
+    }
+
+    /**
+     * A rough estimate of how much heap the terms, postings and positions in this index take up.
+     */
+    public long estimatedSizeInBytes() {
+        return mEstimatedBytes;
+    }
+
+    public boolean isEmpty() {
+        return mIndex.isEmpty();
     }
 
     @Override
@@ -80,7 +120,18 @@ public class PositionalInvertedIndex implements Index {
      */
     @Override
     public List<Posting> getPostingsWithoutPositions(String term) {
-        return null;
+        // the postings are already in memory, so there's nothing to save by leaving the positions out
+        return getPostings(term);
+    }
+
+    /**
+     * Opens a cursor directly over the term's in-memory postings list.
+     *
+     * @param term
+     */
+    @Override
+    public PostingsCursor getPostingsCursor(String term, WeighingScheme scheme, DiskIndexDAO indexDao) {
+        return new ListPostingsCursor(mIndex.get(term), scheme, indexDao);
     }
 
     /**
@@ -12,8 +12,13 @@ import java.util.*;
  * A Posting encapsulates a document ID associated a list of term positions within the document
  */
 public class Posting implements Comparable<Posting> {
+	private static final int INITIAL_POSITIONS_CAPACITY = 4;
+
 	private int mDocumentId;
-	private List<Integer> mTermPositions;
+	// the term positions are kept in a growable int array instead of a List<Integer> so building the index never boxes them;
+	// only the first mPositionCount entries are in use
+	private int[] mTermPositions;
+	private int mPositionCount;
 	private int mTermFrequency; // tf(t,d)
 	private DocTermWeight mDocTermWeight; // wdt
 	private QueryTermWeight mQueryTermWeight; // wdt
@@ -21,7 +26,7 @@ public class Posting implements Comparable<Posting> {
 //	private double mAccumulator;  // Ad
 
 	public Posting() {
-		mTermPositions = new ArrayList<>();
+		mTermPositions = new int[0];
 //		mAccumulator = 0;
 	}
 
@@ -31,7 +36,7 @@ public class Posting implements Comparable<Posting> {
 	 */
 	public Posting(int documentId) {
 		mDocumentId = documentId;
-		mTermPositions = new ArrayList<>();
+		mTermPositions = new int[0];
 		mTermFrequency = 0;
 //		mAccumulator = 0;
 		mDocTermWeight = new DocTermWeight();
@@ -44,39 +49,63 @@ public class Posting implements Comparable<Posting> {
 	 */
 	public Posting(int documentId, int termPosition) {
 		mDocumentId = documentId;
-		mTermPositions = new ArrayList<>();
-		mTermPositions.add(termPosition);
-		mTermFrequency = mTermPositions.size();
+		mTermPositions = new int[INITIAL_POSITIONS_CAPACITY];
+		mTermPositions[0] = termPosition;
+		mPositionCount = 1;
+		mTermFrequency = mPositionCount;
 //		mAccumulator = 0;
 		mDocTermWeight = new DocTermWeight(documentId, mTermFrequency);
 		mDocWeight = new DocWeight(documentId);
 	}
 	/**
-	 * Overloaded constructor for making a posting with only alist of termPosition at the time of initialization
+	 * Overloaded constructor for making a posting with the first count (sorted) term positions of the given array at the time of initialization
+	 * The array is used as-is rather than copied, so the caller must not reuse it afterwards
 	 * @param documentId
 	 * @param termPositions
+	 * @param count
 	 */
-	public Posting(int documentId, List<Integer> termPositions) {
+	public Posting(int documentId, int[] termPositions, int count) {
 		mDocumentId = documentId;
 		mTermPositions = termPositions;
-		mTermFrequency = mTermPositions.size();
+		mPositionCount = count;
+		mTermFrequency = mPositionCount;
 //		mAccumulator = 0;
 		mDocTermWeight = new DocTermWeight(documentId, mTermFrequency);
 		mDocWeight = new DocWeight(documentId);
 	}
 
 	public void addTermPosition (int position) {
-		mTermPositions.add(position);
-		Collections.sort(mTermPositions);
-		mDocTermWeight.setTermFrequency(mTermPositions.size());
+		if (mPositionCount == mTermPositions.length) {
+			mTermPositions = Arrays.copyOf(mTermPositions, Math.max(INITIAL_POSITIONS_CAPACITY, mTermPositions.length * 2));
+		}
+		// positions almost always arrive in increasing order, so only shift when one doesn't, to keep the array sorted
+		int insertAt = mPositionCount;
+		while (insertAt > 0 && mTermPositions[insertAt - 1] > position) {
+			insertAt--;
+		}
+		System.arraycopy(mTermPositions, insertAt, mTermPositions, insertAt + 1, mPositionCount - insertAt);
+		mTermPositions[insertAt] = position;
+		mPositionCount++;
+		mDocTermWeight.setTermFrequency(mPositionCount);
 	}
 
 	public int getDocumentId() {
 		return mDocumentId;
 	}
 
-	public List<Integer> getTermPositions() {
-		return mTermPositions;
+	/**
+	 * Returns a copy of just the term positions that are in use; prefer getTermPositionCount() and getTermPosition() when reading them in a loop
+	 */
+	public int[] getTermPositions() {
+		return Arrays.copyOf(mTermPositions, mPositionCount);
+	}
+
+	public int getTermPositionCount() {
+		return mPositionCount;
+	}
+
+	public int getTermPosition(int index) {
+		return mTermPositions[index];
 	}
 
 	// given two Separate postings objects with the same docID's, returns a single Posting instance that maps their common docId to an aggregate list of  all the term positions from both original Postings (without duplicates)
@@ -88,17 +117,25 @@ public class Posting implements Comparable<Posting> {
 			return this;
 		}
 		else {
-			// create a HashSet that will store all non-duplicated term positions from both postings
-			HashSet<Integer> aggregate = new HashSet<>();
-			// add all term positiongs to the set
-			aggregate.addAll(this.mTermPositions);
-			aggregate.addAll(b.mTermPositions);
-			List<Integer> sharedPositions = new ArrayList<>();
-
-			// now convert back into a list to allow Posting instantiation
-			sharedPositions.addAll(aggregate);
-
-			Posting results = new Posting(b.mDocumentId, sharedPositions);
+			// both position arrays are sorted, so walk them together and skip any position that's in both
+			int[] sharedPositions = new int[this.mPositionCount + b.mPositionCount];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < this.mPositionCount || j < b.mPositionCount) {
+				int next;
+				if (j >= b.mPositionCount || (i < this.mPositionCount && this.mTermPositions[i] <= b.mTermPositions[j])) {
+					next = this.mTermPositions[i++];
+				}
+				else {
+					next = b.mTermPositions[j++];
+				}
+				if (count == 0 || sharedPositions[count - 1] != next) {
+					sharedPositions[count++] = next;
+				}
+			}
+
+			Posting results = new Posting(b.mDocumentId, sharedPositions, count);
 			return results;
 		}
 	}
@@ -111,7 +148,7 @@ public class Posting implements Comparable<Posting> {
 			result =  "[w(d,t) = " + mDocTermWeight.getValue() + "; tf(t,d) = " + mTermFrequency + "]";
 		}
 		else {
-			result = mDocumentId + ":" + mTermPositions.toString();
+			result = mDocumentId + ":" + Arrays.toString(getTermPositions());
 		}
 		return result;
 
@@ -0,0 +1,72 @@
+package cecs429.indexes;
+
+/**
+ * Streams a single term's postings one at a time instead of building a whole List of Posting objects, so queries can
+ * walk (and skip through) postings lists without allocating anything per posting.
+ * <p>
+ * A cursor starts before the first posting; call nextDoc() or advance() to move it onto one. Once the list runs out,
+ * docId() returns NO_MORE_DOCS.
+ */
+public interface PostingsCursor {
+	int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+	/**
+	 * Moves onto the next posting and returns its docId, or NO_MORE_DOCS if there are none left.
+	 */
+	int nextDoc();
+
+	/**
+	 * Moves onto the first posting whose docId is at least the target and returns it, or NO_MORE_DOCS if there is
+	 * none. Never moves backwards; if the cursor is already on or past the target it stays where it is.
+	 */
+	int advance(int target);
+
+	int docId();
+
+	/**
+	 * tf(t,d) of the current posting.
+	 */
+	int termFrequency();
+
+	/**
+	 * w(d,t) of the current posting for the cursor's weighing scheme (the active one, unless it was opened for another).
+	 */
+	double weight();
+
+	/**
+	 * An upper bound on w(d,t) / Ld of every posting in the list for the active weighing scheme, which is the most the
+	 * term can add to any doc's ranked score for each unit of w(q,t). Cursors that don't know the bound return positive
+	 * infinity, so ranked queries never skip anything because of them.
+	 */
+	default double maxScore() {
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Moves the cursor's block (but not the cursor itself) onto the block of postings that would hold the target docId,
+	 * and returns the last docId that block covers, so blockMaxScore() bounds every doc from the target up to it.
+	 * Returns NO_MORE_DOCS if the block runs to the end of the list. Cursors without blocks treat the whole list as a
+	 * single block.
+	 */
+	default int advanceShallow(int target) {
+		return NO_MORE_DOCS;
+	}
+
+	/**
+	 * An upper bound on w(d,t) / Ld of every posting in the block that advanceShallow() last moved onto.
+	 */
+	default double blockMaxScore() {
+		return maxScore();
+	}
+
+	/**
+	 * Copies the current posting's termFrequency() term positions into the buffer, growing it if it is too small, and
+	 * returns the buffer that was filled.
+	 */
+	int[] positions(int[] buffer);
+
+	/**
+	 * dFt, the total number of postings in the list.
+	 */
+	int cost();
+}
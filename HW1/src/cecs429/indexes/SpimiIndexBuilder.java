@@ -0,0 +1,247 @@
+package cecs429.indexes;
+
+import cecs429.documents.Document;
+import cecs429.text.AdvancedTokenProcessor;
+import cecs429.weights.DocWeight;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds the on-disk index with single-pass in-memory indexing (SPIMI), so the postings never need to fit in memory all at once.
+ * Docs are posted into an in-memory block until its estimated size reaches the memory budget, then the block's terms are
+ * sorted and written out as a run file and a new block is started. Once every doc has been posted, the runs are merged
+ * term by term into postings.bin and the terms map, one posting at a time.
+ * <p>
+ * Docs are posted in docId order and the runs are merged in the order they were written, so every merged postings list
+ * is already sorted and the finished index is the same one an in-memory build would have written.
+ */
+public class SpimiIndexBuilder {
+    private static final String RUN_FILE_PREFIX = "spimi-run-";
+    private static final String RUN_FILE_SUFFIX = ".tmp";
+
+    private final DiskIndexDAO mIndexDao;
+    private final long mMemoryBudgetBytes;
+    private final List<File> mRunFiles;
+
+    public SpimiIndexBuilder(DiskIndexDAO indexDao, long memoryBudgetBytes) {
+        mIndexDao = indexDao;
+        mMemoryBudgetBytes = memoryBudgetBytes;
+        mRunFiles = new ArrayList<>();
+    }
+
+    /**
+     * Indexes the docs and writes the finished index (including docWeights.bin) to disk.
+     * Returns the DocWeight of every doc, in docId order.
+     */
+    public List<DocWeight> build(Iterable<Document> documents) throws IOException {
+        AdvancedTokenProcessor processor = new AdvancedTokenProcessor();
+        List<DocWeight> docWeights = new ArrayList<>();
+
+        try {
+            PositionalInvertedIndex block = new PositionalInvertedIndex(new ArrayList<>());
+            for (Document d : documents) {
+                DiskPositionalIndex.indexDocument(d, processor, block, docWeights);
+
+                // Ld only depends on the doc's own term frequencies and size, which are final once the whole doc is posted, so
+                // calculate it now (under every scheme) and let go of the w(d,t) references that would otherwise keep every block's postings alive
+                DocWeight docWeight = docWeights.get(docWeights.size() - 1);
+                docWeight.getValue();
+                docWeight.calculateAll();
+                docWeight.setTermWeights(Collections.emptyList());
+
+                if (block.estimatedSizeInBytes() >= mMemoryBudgetBytes) {
+                    writeRun(block);
+                    block = new PositionalInvertedIndex(new ArrayList<>());
+                }
+            }
+            if (!block.isEmpty()) {
+                writeRun(block);
+            }
+            block = null;
+
+            System.out.println("Merging " + mRunFiles.size() + " index blocks ...");
+            // the postings' Okapi and Wacky w(d,t) need every doc's stats, so the doc weights go first
+            mIndexDao.writeDocWeights(docWeights);
+            mergeRuns();
+        } finally {
+            for (File run : mRunFiles) {
+                run.delete();
+            }
+            mRunFiles.clear();
+        }
+        return docWeights;
+    }
+
+    // writes the block's terms in sorted order as: term count, then each term (see writeTerm()) followed by its dFt and postings
+    private void writeRun(PositionalInvertedIndex block) throws IOException {
+        File directory = new File(mIndexDao.getIndexPath());
+        directory.mkdirs();
+        File run = new File(directory, RUN_FILE_PREFIX + mRunFiles.size() + RUN_FILE_SUFFIX);
+        mRunFiles.add(run);
+
+        List<String> vocabulary = block.getVocabulary();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            out.writeInt(vocabulary.size());
+            for (String term : vocabulary) {
+                List<Posting> postings = block.getPostings(term);
+                writeTerm(out, term);
+                VariableByteCodec.write(out, postings.size());
+
+                int lastDocId = 0;
+                for (Posting p : postings) {
+                    VariableByteCodec.write(out, p.getDocumentId() - lastDocId);
+                    lastDocId = p.getDocumentId();
+
+                    int positionCount = p.getTermPositionCount();
+                    VariableByteCodec.write(out, positionCount);
+                    int lastPosition = 0;
+                    for (int i = 0; i < positionCount; i++) {
+                        int position = p.getTermPosition(i);
+                        VariableByteCodec.write(out, position - lastPosition);
+                        lastPosition = position;
+                    }
+                }
+            }
+        }
+    }
+
+    // writes the term as its length followed by its chars; writeUTF() can't take a term longer than 65535 bytes of UTF-8, but
+    // the in-memory build and the term dictionary both can, so a single long token would otherwise fail the whole build
+    private static void writeTerm(DataOutputStream out, String term) throws IOException {
+        VariableByteCodec.write(out, term.length());
+        for (int i = 0; i < term.length(); i++) {
+            out.writeChar(term.charAt(i));
+        }
+    }
+
+    // k-way merge of the sorted runs; postings for the same term are concatenated in run order, which is also docId order, and
+    // streamed straight into the index one at a time, so not even the most frequent term's postings are ever held in memory
+    private void mergeRuns() throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < mRunFiles.size(); i++) {
+                RunReader reader = new RunReader(mRunFiles.get(i), i);
+                readers.add(reader);
+                if (reader.nextTerm()) {
+                    queue.add(reader);
+                }
+            }
+
+            mIndexDao.beginIndex();
+            List<RunReader> termRuns = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                String term = queue.peek().mTerm;
+                // take every run with the term off the queue (in run order) first, so the term's dFt is known before its postings are written
+                termRuns.clear();
+                int dFt = 0;
+                while (!queue.isEmpty() && queue.peek().mTerm.equals(term)) {
+                    RunReader reader = queue.poll();
+                    dFt += reader.readDocumentFrequency();
+                    termRuns.add(reader);
+                }
+                mIndexDao.beginTerm(term, dFt);
+                for (RunReader reader : termRuns) {
+                    reader.copyPostings(mIndexDao);
+                    if (reader.nextTerm()) {
+                        queue.add(reader);
+                    }
+                }
+                mIndexDao.endTerm();
+            }
+            mIndexDao.finishIndex();
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    // sequential reader over a single run file, ordered by its current term and then by the order the runs were written
+    private static class RunReader implements Comparable<RunReader> {
+        private final DataInputStream mIn;
+        private final int mRunIndex;
+        private int mTermsLeft;
+        private String mTerm;
+        private int mPostingsLeft; // postings of the current term that haven't been read yet
+        private int[] mPositions = new int[16]; // reused for the positions of every posting that's read
+        private char[] mTermChars = new char[32]; // reused for the chars of every term that's read
+
+        private RunReader(File run, int runIndex) throws IOException {
+            mIn = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+            mRunIndex = runIndex;
+            mTermsLeft = mIn.readInt();
+        }
+
+        private boolean nextTerm() throws IOException {
+            if (mTermsLeft == 0) {
+                mTerm = null;
+                return false;
+            }
+            mTermsLeft--;
+            mTerm = readTerm();
+            return true;
+        }
+
+        // reads a term written by writeTerm()
+        private String readTerm() throws IOException {
+            int length = VariableByteCodec.read(mIn);
+            if (mTermChars.length < length) {
+                mTermChars = new char[Math.max(length, 2 * mTermChars.length)];
+            }
+            for (int i = 0; i < length; i++) {
+                mTermChars[i] = mIn.readChar();
+            }
+            return new String(mTermChars, 0, length);
+        }
+
+        // reads the dFt of the current term's postings list
+        private int readDocumentFrequency() throws IOException {
+            mPostingsLeft = VariableByteCodec.read(mIn);
+            return mPostingsLeft;
+        }
+
+        // reads the current term's postings (after its dFt) and adds each one to the term being written to the index
+        private void copyPostings(DiskIndexDAO indexDao) throws IOException {
+            int docId = 0;
+            for (; mPostingsLeft > 0; mPostingsLeft--) {
+                docId += VariableByteCodec.read(mIn);
+                int tf = VariableByteCodec.read(mIn);
+                if (mPositions.length < tf) {
+                    mPositions = new int[Math.max(tf, 2 * mPositions.length)];
+                }
+                int position = 0;
+                for (int j = 0; j < tf; j++) {
+                    position += VariableByteCodec.read(mIn);
+                    mPositions[j] = position;
+                }
+                indexDao.addPosting(docId, mPositions, tf);
+            }
+        }
+
+        private void close() {
+            try {
+                mIn.close();
+            } catch (IOException ex) {
+                System.out.println("Failed to close SPIMI run file " + mRunIndex);
+            }
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int result = mTerm.compareTo(other.mTerm);
+            return result != 0 ? result : Integer.compare(mRunIndex, other.mRunIndex);
+        }
+    }
+}
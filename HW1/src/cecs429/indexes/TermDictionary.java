@@ -0,0 +1,407 @@
+package cecs429.indexes;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The sorted vocabulary of an on-disk index, held in memory as one immutable front-coded block of chars. Terms are grouped
+ * into blocks of BLOCK_SIZE: the first term of every block is stored whole, and every term after it only stores how many
+ * leading chars it shares with the term before it plus the chars that follow. Each term's postings.bin offset, dFt, max
+ * w(d,t) / Ld under every weighing scheme and impacts.bin offset sit in parallel arrays, indexed by the term's rank.
+ * <p>
+ * Looking a term up is a binary search over the first terms of the blocks followed by a scan through a single block,
+ * comparing chars straight out of the block without building any Strings, so lookups don't allocate anything. Since
+ * the terms are sorted, every term starting with a prefix sits in one contiguous range of ranks.
+ * <p>
+ * terms.bin holds the dictionary exactly as it's kept in memory: the magic number and format version, the number of
+ * terms, weighing schemes and terms per block, whether impacts.bin offsets are included, then the postings offsets,
+ * dFts, max scores (term by term), impacts offsets, block start offsets and finally the chars themselves.
+ */
+public final class TermDictionary {
+    public static final int TERMS_MAGIC = 0x54524D53;
+    public static final int TERMS_FORMAT_VERSION = 1;
+    // a bigger block means a smaller dictionary but a longer scan at the end of every lookup
+    static final int BLOCK_SIZE = 16;
+
+    private final int mTermCount;
+    private final int mSchemeCount;
+    private final int mBlockSize;
+    private final long[] mPostingsOffsets;
+    private final int[] mDocumentFrequencies;
+    private final double[] mMaxScores; // mSchemeCount values per term
+    private final long[] mImpactsOffsets; // null if the index was written without impacts.bin
+    private final int[] mBlockOffsets; // where each block starts in mChars
+    private final char[] mChars;
+
+    private TermDictionary(int termCount, int schemeCount, int blockSize, long[] postingsOffsets, int[] documentFrequencies,
+                           double[] maxScores, long[] impactsOffsets, int[] blockOffsets, char[] chars) {
+        mTermCount = termCount;
+        mSchemeCount = schemeCount;
+        mBlockSize = blockSize;
+        mPostingsOffsets = postingsOffsets;
+        mDocumentFrequencies = documentFrequencies;
+        mMaxScores = maxScores;
+        mImpactsOffsets = impactsOffsets;
+        mBlockOffsets = blockOffsets;
+        mChars = chars;
+    }
+
+    /**
+     * Reads a whole terms.bin into memory.
+     */
+    public static TermDictionary read(String path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(path)));
+        if (buffer.getInt() != TERMS_MAGIC) {
+            throw new IOException("'" + path + "' is not a term dictionary");
+        }
+        int version = buffer.getInt();
+        if (version != TERMS_FORMAT_VERSION) {
+            throw new IOException("'" + path + "' was written in an unsupported term dictionary format (version " + version + ")");
+        }
+        int termCount = buffer.getInt();
+        int schemeCount = buffer.getInt();
+        int blockSize = buffer.getInt();
+        boolean hasImpacts = buffer.get() != 0;
+
+        long[] postingsOffsets = new long[termCount];
+        buffer.asLongBuffer().get(postingsOffsets);
+        buffer.position(buffer.position() + 8 * termCount);
+        int[] documentFrequencies = new int[termCount];
+        buffer.asIntBuffer().get(documentFrequencies);
+        buffer.position(buffer.position() + 4 * termCount);
+        double[] maxScores = new double[termCount * schemeCount];
+        buffer.asDoubleBuffer().get(maxScores);
+        buffer.position(buffer.position() + 8 * maxScores.length);
+        long[] impactsOffsets = null;
+        if (hasImpacts) {
+            impactsOffsets = new long[termCount];
+            buffer.asLongBuffer().get(impactsOffsets);
+            buffer.position(buffer.position() + 8 * termCount);
+        }
+        int[] blockOffsets = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(blockOffsets);
+        buffer.position(buffer.position() + 4 * blockOffsets.length);
+        char[] chars = new char[buffer.getInt()];
+        buffer.asCharBuffer().get(chars);
+
+        return new TermDictionary(termCount, schemeCount, blockSize, postingsOffsets, documentFrequencies, maxScores,
+                impactsOffsets, blockOffsets, chars);
+    }
+
+    public int size() {
+        return mTermCount;
+    }
+
+    /**
+     * Returns the term's rank (its position in the sorted vocabulary), or -1 if it isn't in the dictionary.
+     */
+    public int find(CharSequence term) {
+        int result = search(term);
+        return result >= 0 ? result : -1;
+    }
+
+    /**
+     * Returns the rank of the first term that is equal to or sorts after the key, or size() if there is none.
+     */
+    public int lowerBound(CharSequence key) {
+        int result = search(key);
+        return result >= 0 ? result : -result - 1;
+    }
+
+    /**
+     * Returns the first rank of the terms starting with the prefix; together with prefixEnd() it gives the range of them.
+     */
+    public int prefixStart(String prefix) {
+        return lowerBound(prefix);
+    }
+
+    /**
+     * Returns the rank just past the last term starting with the prefix.
+     */
+    public int prefixEnd(String prefix) {
+        // every term starting with the prefix sorts before the first string that's bigger than the prefix at its last char
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return mTermCount;
+        }
+        char[] successor = prefix.substring(0, end).toCharArray();
+        successor[end - 1]++;
+        return lowerBound(new String(successor));
+    }
+
+    public long postingsOffset(int rank) {
+        return mPostingsOffsets[rank];
+    }
+
+    public int documentFrequency(int rank) {
+        return mDocumentFrequencies[rank];
+    }
+
+    public double maxScore(int rank, int scheme) {
+        return mMaxScores[rank * mSchemeCount + scheme];
+    }
+
+    /**
+     * Copies the term's max w(d,t) / Ld under every weighing scheme, indexed by the scheme's ordinal.
+     */
+    public double[] maxScores(int rank) {
+        return Arrays.copyOfRange(mMaxScores, rank * mSchemeCount, (rank + 1) * mSchemeCount);
+    }
+
+    public boolean hasImpacts() {
+        return mImpactsOffsets != null;
+    }
+
+    public long impactsOffset(int rank) {
+        return mImpactsOffsets[rank];
+    }
+
+    public String term(int rank) {
+        return terms(rank, rank + 1).get(0);
+    }
+
+    /**
+     * Decodes the terms ranked from start up to (but not including) end.
+     */
+    public List<String> terms(int start, int end) {
+        List<String> results = new ArrayList<>(Math.max(end - start, 0));
+        if (start >= end) {
+            return results;
+        }
+        char[] term = new char[16];
+        int rank = start - start % mBlockSize;
+        int position = mBlockOffsets[rank / mBlockSize];
+        int length = 0;
+        while (rank < end) {
+            int shared = readLength(position);
+            position += lengthChars(shared);
+            int suffix = readLength(position);
+            position += lengthChars(suffix);
+            length = shared + suffix;
+            if (term.length < length) {
+                term = Arrays.copyOf(term, Math.max(length, term.length * 2));
+            }
+            System.arraycopy(mChars, position, term, shared, suffix);
+            position += suffix;
+            if (rank >= start) {
+                results.add(new String(term, 0, length));
+            }
+            rank++;
+        }
+        return results;
+    }
+
+    // same contract as Arrays.binarySearch: the key's rank if it's found, otherwise -(the rank it would be inserted at) - 1
+    private int search(CharSequence key) {
+        if (mTermCount == 0) {
+            return -1;
+        }
+        // find the last block whose first term doesn't sort after the key
+        int low = 0;
+        int high = mBlockOffsets.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (compareFirstTerm(middle, key) <= 0) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        // then walk the block; matched is how many leading chars the previous term shared with the key, and the previous term always sorts before the key
+        int rank = low * mBlockSize;
+        int blockEnd = Math.min(rank + mBlockSize, mTermCount);
+        int position = mBlockOffsets[low];
+        int matched = 0;
+        for (; rank < blockEnd; rank++) {
+            int shared = readLength(position);
+            position += lengthChars(shared);
+            int suffix = readLength(position);
+            position += lengthChars(suffix);
+
+            if (shared < matched) {
+                // this term differs from the previous one where the previous one still matched the key, so it sorts after the key
+                return -rank - 1;
+            }
+            if (shared > matched) {
+                // this term still has the char where the previous one sorted before the key
+                position += suffix;
+                continue;
+            }
+            int compared = 0;
+            while (compared < suffix && matched + compared < key.length() && mChars[position + compared] == key.charAt(matched + compared)) {
+                compared++;
+            }
+            if (compared == suffix) {
+                if (matched + compared == key.length()) {
+                    return rank;
+                }
+                // the term is a prefix of the key, so it sorts before it
+            }
+            else if (matched + compared == key.length() || mChars[position + compared] > key.charAt(matched + compared)) {
+                return -rank - 1;
+            }
+            matched += compared;
+            position += suffix;
+        }
+        return -rank - 1;
+    }
+
+    private int compareFirstTerm(int block, CharSequence key) {
+        int position = mBlockOffsets[block];
+        position += lengthChars(readLength(position)); // always 0
+        int length = readLength(position);
+        position += lengthChars(length);
+        int common = Math.min(length, key.length());
+        for (int i = 0; i < common; i++) {
+            char c = mChars[position + i];
+            if (c != key.charAt(i)) {
+                return c - key.charAt(i);
+            }
+        }
+        return length - key.length();
+    }
+
+    // lengths under 2^15 take up one char; longer ones take two, with the top bit of the first one set
+    private int readLength(int position) {
+        int value = mChars[position];
+        if ((value & 0x8000) != 0) {
+            value = ((value & 0x7FFF) << 15) | mChars[position + 1];
+        }
+        return value;
+    }
+
+    private static int lengthChars(int length) {
+        return length < 0x8000 ? 1 : 2;
+    }
+
+    /**
+     * Collects the terms of an index as it's being written, in sorted order, and writes them out as a terms.bin.
+     */
+    static final class Builder {
+        private final int mSchemeCount;
+        private final boolean mHasImpacts;
+        private int mTermCount;
+        private long[] mPostingsOffsets = new long[1024];
+        private int[] mDocumentFrequencies = new int[1024];
+        private double[] mMaxScores;
+        private long[] mImpactsOffsets;
+        private int[] mBlockOffsets = new int[64];
+        private char[] mChars = new char[8192];
+        private int mCharCount;
+        private String mPreviousTerm;
+
+        Builder(int schemeCount, boolean hasImpacts) {
+            mSchemeCount = schemeCount;
+            mHasImpacts = hasImpacts;
+            mMaxScores = new double[1024 * schemeCount];
+            mImpactsOffsets = hasImpacts ? new long[1024] : null;
+        }
+
+        /**
+         * Adds the next term; terms have to be added in sorted order.
+         */
+        void add(String term, long postingsOffset, int documentFrequency, double[] maxScores, long impactsOffset) {
+            if (mPreviousTerm != null && mPreviousTerm.compareTo(term) >= 0) {
+                throw new IllegalArgumentException("term '" + term + "' was added after '" + mPreviousTerm + "'");
+            }
+            if (mTermCount == mPostingsOffsets.length) {
+                int capacity = mTermCount * 2;
+                mPostingsOffsets = Arrays.copyOf(mPostingsOffsets, capacity);
+                mDocumentFrequencies = Arrays.copyOf(mDocumentFrequencies, capacity);
+                mMaxScores = Arrays.copyOf(mMaxScores, capacity * mSchemeCount);
+                if (mHasImpacts) {
+                    mImpactsOffsets = Arrays.copyOf(mImpactsOffsets, capacity);
+                }
+            }
+            mPostingsOffsets[mTermCount] = postingsOffset;
+            mDocumentFrequencies[mTermCount] = documentFrequency;
+            System.arraycopy(maxScores, 0, mMaxScores, mTermCount * mSchemeCount, mSchemeCount);
+            if (mHasImpacts) {
+                mImpactsOffsets[mTermCount] = impactsOffset;
+            }
+
+            // the first term of every block is written whole, so a lookup can start decoding at any block
+            int shared = 0;
+            if (mTermCount % BLOCK_SIZE == 0) {
+                int block = mTermCount / BLOCK_SIZE;
+                if (block == mBlockOffsets.length) {
+                    mBlockOffsets = Arrays.copyOf(mBlockOffsets, block * 2);
+                }
+                mBlockOffsets[block] = mCharCount;
+            }
+            else {
+                int common = Math.min(mPreviousTerm.length(), term.length());
+                while (shared < common && mPreviousTerm.charAt(shared) == term.charAt(shared)) {
+                    shared++;
+                }
+            }
+            int suffix = term.length() - shared;
+            ensureChars(4 + suffix);
+            writeLength(shared);
+            writeLength(suffix);
+            term.getChars(shared, term.length(), mChars, mCharCount);
+            mCharCount += suffix;
+
+            mPreviousTerm = term;
+            mTermCount++;
+        }
+
+        void write(String path) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+                out.writeInt(TERMS_MAGIC);
+                out.writeInt(TERMS_FORMAT_VERSION);
+                out.writeInt(mTermCount);
+                out.writeInt(mSchemeCount);
+                out.writeInt(BLOCK_SIZE);
+                out.writeBoolean(mHasImpacts);
+                for (int i = 0; i < mTermCount; i++) {
+                    out.writeLong(mPostingsOffsets[i]);
+                }
+                for (int i = 0; i < mTermCount; i++) {
+                    out.writeInt(mDocumentFrequencies[i]);
+                }
+                for (int i = 0; i < mTermCount * mSchemeCount; i++) {
+                    out.writeDouble(mMaxScores[i]);
+                }
+                if (mHasImpacts) {
+                    for (int i = 0; i < mTermCount; i++) {
+                        out.writeLong(mImpactsOffsets[i]);
+                    }
+                }
+                int blockCount = (mTermCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+                out.writeInt(blockCount);
+                for (int i = 0; i < blockCount; i++) {
+                    out.writeInt(mBlockOffsets[i]);
+                }
+                out.writeInt(mCharCount);
+                for (int i = 0; i < mCharCount; i++) {
+                    out.writeChar(mChars[i]);
+                }
+            }
+        }
+
+        private void writeLength(int length) {
+            if (length >= 0x8000) {
+                mChars[mCharCount++] = (char) (0x8000 | (length >>> 15));
+                length &= 0x7FFF;
+            }
+            mChars[mCharCount++] = (char) length;
+        }
+
+        private void ensureChars(int count) {
+            if (mCharCount + count > mChars.length) {
+                mChars = Arrays.copyOf(mChars, Math.max(mCharCount + count, mChars.length * 2));
+            }
+        }
+    }
+}
@@ -64,7 +64,8 @@ public class TermDocumentIndex implements Index {
      */
 	@Override
 	public List<Posting> getPostingsWithoutPositions(String term) {
-		return null;
+		// this index never stores positions in the first place
+		return getPostings(term);
 	}
 
 	public List<String> getVocabulary() {
@@ -0,0 +1,88 @@
+package cecs429.indexes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Holds the postings of the term being written (as docId gaps, tf(t,d) and the byte length of each posting's positions) for
+ * when they have to be gone over a second time, like when a quantized encoding needs the range of the term's weights before
+ * any of them can be written. The postings are kept in memory up to a limit and spill over to a temp file past it, so a term
+ * never has to fit in memory however many docs it shows up in.
+ */
+final class TermSpill {
+    private final File mDirectory;
+    private final int mMemoryLimit;
+    private final ByteArrayOutputStream mBuffer;
+    private DataOutputStream mOut;
+    private File mFile; // null while the postings still fit in mBuffer
+    private int mLastDocId;
+    private int mCount;
+
+    TermSpill(File directory, int memoryLimit) {
+        mDirectory = directory;
+        mMemoryLimit = memoryLimit;
+        mBuffer = new ByteArrayOutputStream();
+        mOut = new DataOutputStream(mBuffer);
+    }
+
+    /**
+     * Drops the postings of the last term so a new one can be started.
+     */
+    void reset() throws IOException {
+        close();
+        mBuffer.reset();
+        mOut = new DataOutputStream(mBuffer);
+        mLastDocId = 0;
+        mCount = 0;
+    }
+
+    void add(int docId, int termFrequency, long positionsBytes) throws IOException {
+        VariableByteCodec.write(mOut, docId - mLastDocId);
+        VariableByteCodec.write(mOut, termFrequency);
+        VariableByteCodec.writeLong(mOut, positionsBytes);
+        mLastDocId = docId;
+        mCount++;
+
+        if (mFile == null && mBuffer.size() > mMemoryLimit) {
+            mFile = File.createTempFile("term-spill-", ".tmp", mDirectory);
+            mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mFile)));
+            mBuffer.writeTo(mOut);
+            mBuffer.reset();
+        }
+    }
+
+    int size() {
+        return mCount;
+    }
+
+    /**
+     * Opens the postings added since the last reset() for reading, in the order they were added. Each one is read back as
+     * its docId gap and tf(t,d) (variable-byte ints) and the byte length of its positions (a variable-byte long).
+     */
+    DataInputStream open() throws IOException {
+        mOut.flush();
+        if (mFile == null) {
+            return new DataInputStream(new ByteArrayInputStream(mBuffer.toByteArray()));
+        }
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+    }
+
+    /**
+     * Deletes the temp file, if the postings spilled over into one.
+     */
+    void close() throws IOException {
+        if (mFile != null) {
+            mOut.close();
+            mFile.delete();
+            mFile = null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cecs429.indexes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable-byte (VByte) encoding of non-negative ints, as used for the gaps in postings.bin.
+ * Each byte carries 7 bits of the value, most significant group first, and the final byte of every number has its
+ * high bit set to mark where the number ends. Small gaps (the common case) therefore take a single byte instead of 4.
+ */
+public final class VariableByteCodec {
+    private static final int TERMINATOR = 0x80;
+    private static final int PAYLOAD = 0x7F;
+
+    private VariableByteCodec() {
+    }
+
+    /**
+     * Writes the value and returns the number of bytes used to encode it.
+     */
+    public static int write(DataOutput out, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Variable-byte encoding only supports non-negative values: " + value);
+        }
+        // find the most significant 7-bit group so the groups can be written from the top down
+        // an int has at most 5 groups, and shifting it by 35 would wrap around to 3 (Java masks int shifts to 5 bits)
+        int shift = 0;
+        while (shift < 28 && (value >>> (shift + 7)) != 0) {
+            shift += 7;
+        }
+        int bytes = 1;
+        while (shift > 0) {
+            out.writeByte((value >>> shift) & PAYLOAD);
+            shift -= 7;
+            bytes++;
+        }
+        out.writeByte((value & PAYLOAD) | TERMINATOR);
+        return bytes;
+    }
+
+    /**
+     * Writes a long value (such as a byte offset into a file larger than 2 GB) and returns the number of bytes used.
+     */
+    public static int writeLong(DataOutput out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Variable-byte encoding only supports non-negative values: " + value);
+        }
+        int shift = 0;
+        while ((value >>> (shift + 7)) != 0) {
+            shift += 7;
+        }
+        int bytes = 1;
+        while (shift > 0) {
+            out.writeByte((int) ((value >>> shift) & PAYLOAD));
+            shift -= 7;
+            bytes++;
+        }
+        out.writeByte((int) ((value & PAYLOAD) | TERMINATOR));
+        return bytes;
+    }
+
+    public static int read(DataInput in) throws IOException {
+        int value = 0;
+        int current = in.readUnsignedByte();
+        while ((current & TERMINATOR) == 0) {
+            value = (value << 7) | current;
+            current = in.readUnsignedByte();
+        }
+        return (value << 7) | (current & PAYLOAD);
+    }
+
+    public static long readLong(DataInput in) throws IOException {
+        long value = 0;
+        int current = in.readUnsignedByte();
+        while ((current & TERMINATOR) == 0) {
+            value = (value << 7) | current;
+            current = in.readUnsignedByte();
+        }
+        return (value << 7) | (current & PAYLOAD);
+    }
+
+    /**
+     * Skips over the given number of encoded values without decoding them.
+     */
+    public static void skip(DataInput in, int count) throws IOException {
+        while (count > 0) {
+            if ((in.readUnsignedByte() & TERMINATOR) != 0) {
+                count--;
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package cecs429.indexes;
+
+import cecs429.weights.DefaultWeigher;
+import cecs429.weights.OkapiWeigher;
+import cecs429.weights.TfIdfWeigher;
+import cecs429.weights.WackyWeigher;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static edu.csulb.Driver.WeighingScheme;
+import static edu.csulb.Driver.WeightEncoding;
+
+/**
+ * Writes and reads the w(d,t) values of the postings in postings.bin under one WeightEncoding.
+ * <p>
+ * Every scheme's weight is stored in a fixed number of bytes per posting (so postings can still be skipped without
+ * decoding them), and the schemes that aren't stored are worked out again from the posting's tf(t,d) with the same
+ * weigher code that worked them out while the index was being written. The quantized encodings start each postings
+ * list with the min and step (as floats) of every stored scheme's levels, so a weight is the min plus its level times
+ * the step.
+ */
+final class WeightCodec {
+    private static final WeighingScheme[] SCHEMES = WeighingScheme.values();
+
+    private final WeightEncoding mEncoding;
+    private final int[] mSlots; // which stored weight of a posting belongs to each scheme, or -1 if it's worked out from tf(t,d)
+    private final int mStoredCount;
+    private final int mBytesPerWeight;
+    private final int mLevels; // the highest quantized level, or 0 if the weights aren't quantized
+    private final long[] mDocLengths; // the doc stats RECOMPUTED needs, indexed by docId; null otherwise
+    private final int[] mAvgTermFrequencies;
+    private final int mAvgDocLength;
+    private final float[] mMins; // the levels of the term being written (only used while writing)
+    private final float[] mSteps;
+    private final double[] mObservedMins; // the range of the weights seen so far of the term being written
+    private final double[] mObservedMaxes;
+
+    private WeightCodec(WeightEncoding encoding, long[] docLengths, int[] avgTermFrequencies, int avgDocLength) {
+        mEncoding = encoding;
+        mDocLengths = docLengths;
+        mAvgTermFrequencies = avgTermFrequencies;
+        mAvgDocLength = avgDocLength;
+        mSlots = new int[SCHEMES.length];
+        int stored = 0;
+        for (WeighingScheme scheme : SCHEMES) {
+            mSlots[scheme.ordinal()] = isStored(encoding, scheme) ? stored++ : -1;
+        }
+        mStoredCount = stored;
+        switch (encoding) {
+            case QUANTIZED_16:
+                mBytesPerWeight = 2;
+                mLevels = 0xFFFF;
+                break;
+            case QUANTIZED_8:
+                mBytesPerWeight = 1;
+                mLevels = 0xFF;
+                break;
+            default:
+                mBytesPerWeight = 8;
+                mLevels = 0;
+                break;
+        }
+        mMins = new float[stored];
+        mSteps = new float[stored];
+        mObservedMins = new double[stored];
+        mObservedMaxes = new double[stored];
+    }
+
+    /**
+     * A codec for writing a new index with the given encoding.
+     */
+    static WeightCodec forWriting(WeightEncoding encoding) {
+        return new WeightCodec(encoding, null, null, 0);
+    }
+
+    /**
+     * A codec for reading an index written with the given encoding. Only RECOMPUTED needs the doc stats; the other
+     * encodings can be given nulls.
+     */
+    static WeightCodec forReading(WeightEncoding encoding, long[] docLengths, int[] avgTermFrequencies, int avgDocLength) {
+        return new WeightCodec(encoding, docLengths, avgTermFrequencies, avgDocLength);
+    }
+
+    // DEFAULT and TF_IDF only need tf(t,d); OKAPI and WACKY also need the doc's stats, which only RECOMPUTED keeps in memory
+    private static boolean isStored(WeightEncoding encoding, WeighingScheme scheme) {
+        switch (encoding) {
+            case DOUBLE:
+                return true;
+            case RECOMPUTED:
+                return false;
+            default:
+                return needsDocStats(scheme);
+        }
+    }
+
+    /**
+     * Whether the scheme's weights are stored in the postings, rather than worked out again from tf(t,d) when they're read.
+     */
+    boolean isStored(WeighingScheme scheme) {
+        return mSlots[scheme.ordinal()] >= 0;
+    }
+
+    static boolean needsDocStats(WeighingScheme scheme) {
+        return scheme == WeighingScheme.OKAPI || scheme == WeighingScheme.WACKY;
+    }
+
+    WeightEncoding encoding() {
+        return mEncoding;
+    }
+
+    /**
+     * The bytes at the start of every postings list that hold its quantization levels.
+     */
+    int termHeaderBytes() {
+        return mLevels > 0 ? 8 * mStoredCount : 0;
+    }
+
+    /**
+     * The bytes of weights in every posting.
+     */
+    int postingBytes() {
+        return mStoredCount * mBytesPerWeight;
+    }
+
+    /**
+     * Whether a term's weights have to be seen (with observe()) before its header and postings can be written.
+     */
+    boolean needsTermRange() {
+        return mLevels > 0;
+    }
+
+    /**
+     * Starts a new term; with a quantized encoding, every one of its postings' weights then has to be passed to observe()
+     * before its header is written.
+     */
+    void beginTerm() {
+        Arrays.fill(mObservedMins, Double.POSITIVE_INFINITY);
+        Arrays.fill(mObservedMaxes, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Widens the range of the term's levels to cover the weights (indexed by scheme ordinal) of one of its postings.
+     */
+    void observe(double[] weights) {
+        for (WeighingScheme scheme : SCHEMES) {
+            int slot = mSlots[scheme.ordinal()];
+            double weight = weights[scheme.ordinal()];
+            if (slot >= 0 && !Double.isNaN(weight) && !Double.isInfinite(weight)) {
+                mObservedMins[slot] = Math.min(mObservedMins[slot], weight);
+                mObservedMaxes[slot] = Math.max(mObservedMaxes[slot], weight);
+            }
+        }
+    }
+
+    /**
+     * Works out the levels of the term's weights from the range passed to observe() and writes them.
+     * Returns the number of bytes written.
+     */
+    int writeTermHeader(DataOutputStream writer) throws IOException {
+        if (mLevels == 0) {
+            return 0;
+        }
+        for (WeighingScheme scheme : SCHEMES) {
+            int slot = mSlots[scheme.ordinal()];
+            if (slot < 0) {
+                continue;
+            }
+            double min = mObservedMins[slot];
+            double max = mObservedMaxes[slot];
+            if (min > max) {
+                min = 0;
+                max = 0;
+            }
+            mMins[slot] = (float) min;
+            mSteps[slot] = (float) ((max - mMins[slot]) / mLevels);
+            writer.writeFloat(mMins[slot]);
+            writer.writeFloat(mSteps[slot]);
+        }
+        return termHeaderBytes();
+    }
+
+    /**
+     * Writes the weights (indexed by scheme ordinal) of one of the term's postings, and fills in decoded with the weight of
+     * every scheme exactly as a reader will get it back. Returns the number of bytes written.
+     */
+    int writePosting(DataOutputStream writer, double[] weights, double[] decoded) throws IOException {
+        for (WeighingScheme scheme : SCHEMES) {
+            int s = scheme.ordinal();
+            double weight = weights[s];
+            int slot = mSlots[s];
+            if (slot < 0) {
+                // worked out again from the same tf(t,d) and doc stats, so it comes back exactly the same
+                decoded[s] = weight;
+            }
+            else if (mLevels == 0) {
+                writer.writeDouble(weight);
+                decoded[s] = weight;
+            }
+            else {
+                long level = 0;
+                if (mSteps[slot] > 0) {
+                    level = Math.round((weight - mMins[slot]) / mSteps[slot]);
+                    level = Math.max(0, Math.min(mLevels, level));
+                }
+                if (mBytesPerWeight == 2) {
+                    writer.writeShort((int) level);
+                }
+                else {
+                    writer.writeByte((int) level);
+                }
+                decoded[s] = dequantize(mMins[slot], mSteps[slot], (int) level);
+            }
+        }
+        return postingBytes();
+    }
+
+    /**
+     * Decodes the scheme's w(d,t) of a posting straight out of the mapped postings.bin.
+     *
+     * @param headerAddress where the postings list's levels start
+     * @param weightsAddress where the posting's weights start
+     */
+    double weight(WeighingScheme scheme, MappedFileReader postings, long headerAddress, long weightsAddress, int tfTd, int docId) {
+        int slot = mSlots[scheme.ordinal()];
+        if (slot < 0) {
+            return calculateWdt(scheme, tfTd, docId);
+        }
+        if (mLevels == 0) {
+            return postings.getDouble(weightsAddress + 8L * slot);
+        }
+        int level = mBytesPerWeight == 2 ? postings.getShort(weightsAddress + 2L * slot) & 0xFFFF
+                : postings.getByte(weightsAddress + slot) & 0xFF;
+        return dequantize(postings.getFloat(headerAddress + 8L * slot), postings.getFloat(headerAddress + 8L * slot + 4), level);
+    }
+
+    private static double dequantize(float min, float step, int level) {
+        return min + level * (double) step;
+    }
+
+    private double calculateWdt(WeighingScheme scheme, int tfTd, int docId) {
+        if (!needsDocStats(scheme)) {
+            return calculateWdt(scheme, tfTd, 0, 0, 0);
+        }
+        return calculateWdt(scheme, tfTd, mDocLengths[docId], mAvgDocLength, mAvgTermFrequencies[docId]);
+    }
+
+    /**
+     * Works out the scheme's w(d,t) with the weigher's own formula, from tf(t,d) and the doc stats in memory. The index is
+     * written with this too, so the weights that are worked out again when reading always match the ones it was written with.
+     */
+    static double calculateWdt(WeighingScheme scheme, int tfTd, long docLength, int avgDocLength, int avgTfTd) {
+        switch (scheme) {
+            case DEFAULT:
+                return DefaultWeigher.calculateWdt(tfTd);
+            case TF_IDF:
+                return TfIdfWeigher.calculateWdt(tfTd);
+            case OKAPI:
+                return OkapiWeigher.calculateWdt(tfTd, docLength, avgDocLength);
+            default:
+                return WackyWeigher.calculateWdt(tfTd, avgTfTd);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.stream.Collectors;
 
 import cecs429.indexes.Index;
 import cecs429.indexes.Posting;
+import cecs429.indexes.PostingsCursor;
 import cecs429.text.AdvancedTokenProcessor;
 import cecs429.text.TokenProcessor;
 
@@ -16,7 +17,6 @@ import javax.imageio.ImageTranscoder;
  */
 public class AndQuery implements QueryComponent {
 	private final List<QueryComponent> mComponents;
-	private static List<String> mProcessedTerms;
 //	private static HashSet<Integer> mDocIds;
 //	private static List<Posting> mResults;
 
@@ -24,29 +24,18 @@ public class AndQuery implements QueryComponent {
 		mComponents = components;
 //		mDocIds = new HashSet<>();
 //		mResults = new ArrayList<>();
-		mProcessedTerms = new ArrayList<>();
 
 	}
 
 	
 	@Override
-	public List<Posting> getPostings(TokenProcessor processor, Index index) {
+	public List<Posting> getPostings(QueryContext context) {
 		// process and normalize tokens into terms to use to search the index
-		for (QueryComponent c : mComponents) {
-			List<String> currentTerms = processor.processToken(c.toString());
-			mProcessedTerms.addAll(currentTerms);
-		}
-		//Collections.sort(mProcessedTerms);
-
-		// initialize a master postings list with the postings for the first processed term in the list
-		List<Posting> masterPostingsList = index.getPostings(mProcessedTerms.get(0));
+		List<String> processedTerms = getProcessedTerms(context.getProcessor());
+		//Collections.sort(processedTerms);
 
-		//mResults = mComponents.get(0).getPostings(index);
 		try {
-			for (int i = 1; i < mProcessedTerms.size(); i++) {
-				masterPostingsList = intersect(masterPostingsList, index.getPostings(mProcessedTerms.get(i)));
-			}
-			return masterPostingsList;
+			return intersect(context, processedTerms);
 		}
 		catch (Exception ex) {
 			System.out.println("No documents were found containing the AND query '" + this + "'");
@@ -55,45 +44,47 @@ public class AndQuery implements QueryComponent {
 	}
 
 	@Override
-	public List<String> getProcessedTerms() {
-		return null;
+	public List<String> getProcessedTerms(TokenProcessor processor) {
+		List<String> processedTerms = new ArrayList<>();
+		for (QueryComponent c : mComponents) {
+			processedTerms.addAll(processor.processToken(c.toString()));
+		}
+		return processedTerms;
 	}
 
 	@Override
-	public List<Posting> getPostingsWithoutPositions(TokenProcessor processor, Index activeIndex) {
-		return null;
+	public List<Posting> getPostingsWithoutPositions(QueryContext context) {
+		// the merge never looks at term positions, so getPostings() already avoids reading them
+		return getPostings(context);
 	}
 
-	// performs an AND intersect merge of two lists of postings to return a new list containing only the postings the are found in both of the original lists
-	public List<Posting> intersect(List<Posting> top, List<Posting> bottom) {
-
-		// initialize the results list
+	// intersects the postings of all the terms at once by walking the rarest term's postings and using advance() to skip the
+	// other lists straight to each of its docIds, so most of the postings of the common terms are never decoded
+	public List<Posting> intersect(QueryContext context, List<String> terms) {
 		List<Posting> results = new ArrayList<>();
 
-		// set up indexes to iterate through both postings lists simultaneously
-		int i = 0; // top index
-		int j = 0; // bottom index
-
-		// iterate through both lists simultaneously
-		while (i < top.size() && j < bottom.size()) {
-			// find the documentId's of each list at their respective current indexes
-			int topDocId = top.get(i).getDocumentId();
-			int bottomDocId = bottom.get(j).getDocumentId();
-
-			// if they are equal, merge the two postings and add to the results
-			if (topDocId == bottomDocId) {
-				Posting match = (top.get(i).merge(bottom.get(j)));
-				Collections.sort(match.getTermPositions());
-				results.add(match);
-				i++;
-				j++;
-			}
-			// if the current docId's aren't equal, increment the one with the lower docId
-			else if (topDocId < bottomDocId) {
-				i++;
+		List<PostingsCursor> cursors = new ArrayList<>();
+		for (String term : terms) {
+			cursors.add(context.postingsCursor(term));
+		}
+		cursors.sort(Comparator.comparingInt(PostingsCursor::cost));
+
+		PostingsCursor lead = cursors.get(0);
+		int docId = lead.nextDoc();
+		while (docId != PostingsCursor.NO_MORE_DOCS) {
+			boolean matched = true;
+			for (int i = 1; i < cursors.size(); i++) {
+				int otherDocId = cursors.get(i).advance(docId);
+				// if another list doesn't have this doc, jump the lead ahead to where that list is instead
+				if (otherDocId > docId) {
+					docId = lead.advance(otherDocId);
+					matched = false;
+					break;
+				}
 			}
-			else {
-				j++;
+			if (matched) {
+				results.add(new Posting(docId));
+				docId = lead.nextDoc();
 			}
 		}
 		return results;
@@ -103,7 +94,7 @@ public class AndQuery implements QueryComponent {
 	public String toString() {
 		// Returns a string of the form "[SUBQUERY] + [SUBQUERY] + [SUBQUERY]"
 		return "Query components: (" +
-				String.join(" + ", mComponents.stream().map(c -> c.toString()).collect(Collectors.toList()) + "\n Processed terms: (" + String.join(" + ", mProcessedTerms.stream().map(c -> c.toString()).collect(Collectors.toList())));
+				String.join(" + ", mComponents.stream().map(c -> c.toString()).collect(Collectors.toList())) + ")";
 	}
 
 }
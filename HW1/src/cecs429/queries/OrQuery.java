@@ -5,6 +5,7 @@ import java.util.stream.Collectors;
 
 import cecs429.indexes.Index;
 import cecs429.indexes.Posting;
+import cecs429.indexes.PostingsCursor;
 import cecs429.text.AdvancedTokenProcessor;
 import cecs429.text.TokenProcessor;
 
@@ -13,40 +14,21 @@ import cecs429.text.TokenProcessor;
  */
 public class OrQuery implements QueryComponent {
 	// The components of the Or query.
-	private List<QueryComponent> mComponents;
-	private static AdvancedTokenProcessor mProcessor;
-	private static List<String> mProcessedTerms;
+	private final List<QueryComponent> mComponents;
 	
 	public OrQuery(List<QueryComponent> components) {
 		//mProcessor = processor;
 		mComponents = components;
-		mProcessedTerms = new ArrayList<>();
 	}
 	
 	@Override
-	public List<Posting> getPostings(TokenProcessor processor, Index index) {
-		// initialize a master postings list to which we will add all of the individual lists from each component after any necessary processing
-		List<Posting> masterPostingsList = new ArrayList<>();
-
+	public List<Posting> getPostings(QueryContext context) {
 		// process tokens and normalize before searching the index
-		for (QueryComponent c : mComponents) {
-			List<String> currentTerms = processor.processToken(c.toString());
-			mProcessedTerms.addAll(currentTerms);
-		}
-		//Collections.sort(mProcessedTerms);
+		List<String> processedTerms = getProcessedTerms(context.getProcessor());
+		//Collections.sort(processedTerms);
 
 		try {
-			for (int i = 0; i < mProcessedTerms.size(); i++) {
-				// for the first QueryComponent only, automatically add it to the master postings list without any OR processing
-				if (i == 0) {
-					masterPostingsList.addAll(index.getPostings(mProcessedTerms.get(i)));
-				}
-				// for every other query component after that, update the master list by OR-ing it with the current component's postings list
-				else {
-					masterPostingsList = union(index.getPostings(mProcessedTerms.get(i)), masterPostingsList);
-				}
-			}
-			return masterPostingsList;
+			return union(context, processedTerms);
 		}
 
 		catch (Exception ex) {
@@ -56,59 +38,50 @@ public class OrQuery implements QueryComponent {
 	}
 
 	@Override
-	public List<String> getProcessedTerms() {
-		return null;
+	public List<String> getProcessedTerms(TokenProcessor processor) {
+		List<String> processedTerms = new ArrayList<>();
+		for (QueryComponent c : mComponents) {
+			processedTerms.addAll(processor.processToken(c.toString()));
+		}
+		return processedTerms;
 	}
 
 	@Override
-	public List<Posting> getPostingsWithoutPositions(TokenProcessor processor, Index activeIndex) {
-		return null;
+	public List<Posting> getPostingsWithoutPositions(QueryContext context) {
+		// the merge never looks at term positions, so getPostings() already avoids reading them
+		return getPostings(context);
 	}
 
-	// performs the OR union merge of two lists of postings to return a new list containing all postings from both lists (without duplicates)
-	public List<Posting> union(List<Posting> top, List<Posting> bottom) {
+	// performs the OR union merge of all the terms' postings at once by always taking the smallest docId any of their cursors is on
+	// returns a new list containing one posting for every doc that contains at least one of the terms
+	public List<Posting> union(QueryContext context, List<String> terms) {
 		// initialize list to store results
 		List<Posting> results = new ArrayList<>();
 
-		// set up indexes to iterate through both postings lists simultaneously
-		int i = 0; // top
-		int j = 0; // bottom
-
-		// iterate through both lists simultaneously
-		while (i < top.size() && j < bottom.size()) {
-			// find the documentId's of each list at their respective current indexes
-			int topDocId = top.get(i).getDocumentId();
-			int bottomDocId = bottom.get(j).getDocumentId();
-
-			// if they are equal, add either list's current posting (top chosen arbitrarily here) to the results and increment both indexes
-			if (topDocId == bottomDocId) {
-				//Posting merge = top.get(i).merge(bottom.get(j));
-				results.add(top.get(i));
-				i++;
-				j++;
-			}
+		List<PostingsCursor> cursors = new ArrayList<>();
+		for (String term : terms) {
+			PostingsCursor cursor = context.postingsCursor(term);
+			cursor.nextDoc();
+			cursors.add(cursor);
+		}
 
-			// otherwise, add only the posting from the list whose current docId is smaller than the other's
-			else if (topDocId < bottomDocId) {
-				results.add(top.get(i));
-				// then increment this list's index to catch up with the other one
-				i++;
+		while (true) {
+			// find the smallest docId that any of the lists is currently on
+			int docId = PostingsCursor.NO_MORE_DOCS;
+			for (PostingsCursor cursor : cursors) {
+				docId = Math.min(docId, cursor.docId());
 			}
-			else if (bottomDocId < topDocId) {
-				results.add(bottom.get(j));
-				j++;
+			if (docId == PostingsCursor.NO_MORE_DOCS) {
+				break;
 			}
-		}
+			results.add(new Posting(docId));
 
-		// account for lists with different sizes by continuing to iterate to the end of each list and adding any leftover postings to the results lists
-		while (i < top.size()) {
-			// add the remaining posting(s)
-			Posting remaining = top.get(i++);
-			results.add(remaining);
-		}
-		while (j < bottom.size()) {
-			Posting remaining = bottom.get(j++);
-			results.add(remaining);
+			// move every list that was on that doc past it so it's only added once
+			for (PostingsCursor cursor : cursors) {
+				if (cursor.docId() == docId) {
+					cursor.nextDoc();
+				}
+			}
 		}
 		return results;
 	}
@@ -117,6 +90,6 @@ public class OrQuery implements QueryComponent {
 	public String toString() {
 		// Returns a string of the form "[SUBQUERY] + [SUBQUERY] + [SUBQUERY]"
 		return "Query components: (" +
-		 String.join(" + ", mComponents.stream().map(c -> c.toString()).collect(Collectors.toList()) + "\n Processed terms: (" + String.join(" + ", mProcessedTerms.stream().map(c -> c.toString()).collect(Collectors.toList())));
+		 String.join(" + ", mComponents.stream().map(c -> c.toString()).collect(Collectors.toList())) + ")";
 	}
 }
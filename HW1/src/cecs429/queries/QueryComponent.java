@@ -10,17 +10,23 @@ import cecs429.text.TokenProcessor;
 /**
  * A QueryComponent is one piece of a larger query, whether that piece is a literal string or represents a merging of
  * other components. All nodes in a query parse tree are QueryComponent objects.
+ * <p>
+ * Components never change once they are parsed; everything a run needs (and everything it works out along the way) lives
+ * in the QueryContext passed to it, so the same parsed query can be run on several threads at once.
  */
 public interface QueryComponent {
     /**
-     * Retrieves a list of postings for the query component, using an Index as the source.
+     * Retrieves a list of postings for the query component, using the context's Index as the source.
      */
-    List<Posting> getPostings(TokenProcessor processor, Index index);
+    List<Posting> getPostings(QueryContext context);
 
-    List<String> getProcessedTerms();
+    List<Posting> getPostingsWithoutPositions(QueryContext context);
 
-    List<Posting> getPostingsWithoutPositions(TokenProcessor processor, Index activeIndex);
+    /**
+     * The terms the component looks up in the index once its tokens have been processed with the given processor.
+     */
+    List<String> getProcessedTerms(TokenProcessor processor);
 
 //    HashMap<String, List<Posting>> getTermPostings();
 
-}
\ No newline at end of file
+}
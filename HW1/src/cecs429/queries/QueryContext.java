@@ -0,0 +1,126 @@
+package cecs429.queries;
+
+import cecs429.indexes.DiskIndexDAO;
+import cecs429.indexes.ImpactCursor;
+import cecs429.indexes.Index;
+import cecs429.indexes.PostingsCursor;
+import cecs429.text.TokenProcessor;
+import cecs429.weights.QueryTermWeight;
+import edu.csulb.Driver.RankingStrategy;
+import edu.csulb.Driver.WeighingScheme;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything a query needs while it runs: the index to search, the processor for its terms, the weighing scheme and
+ * ranking strategy to score with, where to read each doc's Ld from, and the scratch space (score accumulators) reused
+ * from one query to the next.
+ * <p>
+ * Parsed query trees keep no state of their own between runs, so a single tree can be run by any number of threads at
+ * once as long as each thread passes in its own context. A context is not thread-safe itself, since its scratch space
+ * belongs to whichever query is running with it; every thread (or every worker of a pool) keeps one and reuses it.
+ */
+public final class QueryContext {
+    private final Index mIndex;
+    private final TokenProcessor mProcessor;
+    private final WeighingScheme mScheme;
+    private final RankingStrategy mRankingStrategy;
+    private final DiskIndexDAO mIndexDao; // where Ld is read from; ranked queries read it from disk for every index type
+    private final int mDocumentCount;
+
+    private int mResultCount = 10; // K, the number of top ranked docs a ranked query run with this context returns
+    private ScoreAccumulators mAccumulators;
+    private final List<QueryTermWeight> mQueryWeights; // w(q,t) of every term of the last ranked query run with this context
+
+    public QueryContext(Index index, TokenProcessor processor, WeighingScheme scheme, RankingStrategy rankingStrategy,
+                        DiskIndexDAO indexDao, int documentCount) {
+        mIndex = index;
+        mProcessor = processor;
+        mScheme = scheme;
+        mRankingStrategy = rankingStrategy;
+        mIndexDao = indexDao;
+        mDocumentCount = documentCount;
+        mQueryWeights = new ArrayList<>();
+    }
+
+    public Index getIndex() {
+        return mIndex;
+    }
+
+    public TokenProcessor getProcessor() {
+        return mProcessor;
+    }
+
+    public WeighingScheme getWeighingScheme() {
+        return mScheme;
+    }
+
+    public RankingStrategy getRankingStrategy() {
+        return mRankingStrategy;
+    }
+
+    public int getDocumentCount() {
+        return mDocumentCount;
+    }
+
+    public int getResultCount() {
+        return mResultCount;
+    }
+
+    /**
+     * Sets K for the ranked queries run with this context from now on; a context belongs to one thread, so it can change
+     * from one run to the next without touching the (shared) parsed query.
+     */
+    public void setResultCount(int k) {
+        mResultCount = k;
+    }
+
+    /**
+     * The w(q,t) of every term of the last ranked query run with this context, in query order.
+     */
+    public List<QueryTermWeight> getQueryWeights() {
+        return mQueryWeights;
+    }
+
+    // processes a raw query token into the terms to look up
+    List<String> processToken(String token) {
+        return mProcessor.processToken(token);
+    }
+
+    PostingsCursor postingsCursor(String term) {
+        return mIndex.getPostingsCursor(term, mScheme, mIndexDao);
+    }
+
+    ImpactCursor impactCursor(String term) {
+        return mIndex.getImpactCursor(term, mScheme);
+    }
+
+    // Ld of the doc under the context's scheme
+    double docWeight(int docId) {
+        return mIndexDao.readDocWeight(docId, mScheme);
+    }
+
+    // works out w(q,t) for the term under the context's scheme from its dFt and the context's N, and keeps it for anyone looking at the query's weights later
+    double addQueryWeight(String term, int docFrequency) {
+        QueryTermWeight wQt = new QueryTermWeight(term, docFrequency, mDocumentCount);
+        mQueryWeights.add(wQt);
+        return wQt.getValue(mScheme);
+    }
+
+    // called at the start of every ranked query, so the weights of the last one don't pile up
+    void clearQueryWeights() {
+        mQueryWeights.clear();
+    }
+
+    /**
+     * The context's accumulators, reset for a new query.
+     */
+    ScoreAccumulators accumulators() {
+        if (mAccumulators == null) {
+            mAccumulators = new ScoreAccumulators();
+        }
+        mAccumulators.reset(mDocumentCount);
+        return mAccumulators;
+    }
+}
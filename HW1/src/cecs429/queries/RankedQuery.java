@@ -1,150 +1,139 @@
 package cecs429.queries;
 
+import cecs429.indexes.ImpactCursor;
 import cecs429.indexes.Index;
 import cecs429.indexes.Posting;
+import cecs429.indexes.PostingsCursor;
 import cecs429.text.TokenProcessor;
-import cecs429.weights.DocTermWeight;
-import cecs429.weights.DocWeight;
-import cecs429.weights.QueryTermWeight;
-
-import static edu.csulb.Driver.ActiveConfiguration.*;
+import edu.csulb.Driver.RankingStrategy;
 
 import java.util.*;
 
 public class RankedQuery implements QueryComponent {
-    private int mKterms = 10;
-    private List<String> mTerms;
-    private List<QueryTermWeight> mQueryWeights;
-    private List<String> mProcessedTerms;
-    private HashMap<Integer, Double> mDocWeights;
-    private PriorityQueue<DocWeight> mRankedDocs;
-    private HashMap<Integer, Posting> mPostingsMap;
-
+    private final List<String> mTerms;
 
 
     public RankedQuery(List<String> terms) {
         mTerms = terms;
-        mProcessedTerms = new ArrayList<>();
-        mQueryWeights = new ArrayList<>();
     }
 
     /**
-     * Retrieves a list of postings for the query component, using an Index as the source.
+     * Ranks the docs of the context's index for the query, under the context's weighing scheme and ranking strategy, and
+     * keeps the context's result count of them.
      *
-     * @param processor
-     * @param index
+     * @param context
      */
     @Override
-    public List<Posting> getPostingsWithoutPositions(TokenProcessor processor, Index index) {
+    public List<Posting> getPostingsWithoutPositions(QueryContext context) {
+        // start over on every run, so running the same query again (like the throughput tests do) doesn't count its terms twice
+        context.clearQueryWeights();
 
-        mRankedDocs = new PriorityQueue<>();
-        mPostingsMap = new HashMap<>();
+        // process query terms with the context's processor before ranking
+        List<String> processedTerms = getProcessedTerms(context.getProcessor());
+        int k = context.getResultCount();
 
-        // process query terms with the passed in processor before ranking
-        for (String term : mTerms) {
-            mProcessedTerms.addAll(processor.processToken(term));
+        RankingStrategy strategy = context.getRankingStrategy();
+        if (strategy == RankingStrategy.WAND || strategy == RankingStrategy.BLOCK_MAX_WAND) {
+            return rankDocumentAtATime(context, processedTerms, k, strategy == RankingStrategy.BLOCK_MAX_WAND);
         }
-
-        // loop through each processed term in the query (mTerms)
-        for (String term : mProcessedTerms) {
-
-            List<Posting> postings = index.getPostingsWithoutPositions(term);
-            int dFt = postings.size();
-
-            QueryTermWeight wQt = new QueryTermWeight(term, dFt);
-            mQueryWeights.add(wQt);
-
-            for (int i = 0; i < postings.size(); i++) {
-                Posting currPosting = postings.get(i);
-                DocTermWeight wDt = currPosting.getDocTermWeight();
-                double increment = wDt.getValue() * wQt.getValue();
-                int currDocId = currPosting.getDocumentId();
-
-                // obtain a reference to the current posting's DocWeight so we can statically update its accumulator
-                DocWeight currDocWeight = currPosting.getDocWeight();
-
-                if (mPostingsMap.isEmpty()) {
-                    currDocWeight.increaseAccumulator(increment);
-                    mPostingsMap.put(currDocId, currPosting);
-                }
-
-                // check if the current head (should have the max docId at this time)
-                else {
-                    // try to update the current acc in the map
-                    try {
-                        // if an existing posting is already in the map, increase the accumlator in its docWeight
-                        Posting existing = mPostingsMap.get(currDocId);
-                        existing.getDocWeight().increaseAccumulator(increment);
-
-                    } catch (NullPointerException ex) {
-                        // if the key is null in the rank map, there has yet to be added posting for this docId
-                        currDocWeight.increaseAccumulator(increment);
-                        mPostingsMap.put(currDocId, currPosting);
-                    }
-                }
-            }
+        if (strategy == RankingStrategy.SCORE_AT_A_TIME) {
+            return rankScoreAtATime(context, processedTerms, k);
         }
+        return rankTermAtATime(context, processedTerms, k);
+    }
 
-        // now go through the final map of accumulators and divide each one by the Ld value for its doc
-        List<Posting> results = new ArrayList<>();
+    // scores every posting of every query term into the doc accumulators, then keeps the top K
+    private List<Posting> rankTermAtATime(QueryContext context, List<String> processedTerms, int k) {
+        ScoreAccumulators accumulators = context.accumulators();
 
-        for (int docId : mPostingsMap.keySet()) {
-            DocWeight currDocWeight = mPostingsMap.get(docId).getDocWeight();
+        // loop through each processed term in the query
+        for (String term : processedTerms) {
 
-            double currLd = currDocWeight.readValue(); // Ld
-            double currAd = currDocWeight.getAccumulator();
+            // stream the term's postings instead of building a Posting object for every one of them
+            PostingsCursor postings = context.postingsCursor(term);
+            double wQtValue = context.addQueryWeight(term, postings.cost());
 
-            if (currAd != 0) {
-                double finalAcc = currAd / currLd;
-                currDocWeight.setAccumulator(finalAcc);
+            while (postings.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+                accumulators.add(postings.docId(), postings.weight() * wQtValue);
             }
+        }
 
-            mRankedDocs.add(currDocWeight);
+        // now go through every doc that was touched, divide its accumulator by its Ld, and keep only the top K
+        TopDocsCollector topDocs = new TopDocsCollector(k);
+        for (int i = 0; i < accumulators.touchedCount(); i++) {
+            int docId = accumulators.touchedDoc(i);
+            double currAd = accumulators.score(docId);
 
-            // continually remove the smallest element for every added term after the K_TERMS limit is reached
-            if (mRankedDocs.size() > mKterms) {
-                mRankedDocs.poll();
+            if (currAd != 0) {
+                currAd = currAd / context.docWeight(docId);
             }
+            topDocs.offer(docId, currAd);
         }
 
-        // now that all doc rankings have been calculated and the top K docweights have been polled, use their docId's to reference their original posting  from the PostingsMap
-        while (!mRankedDocs.isEmpty()) {
-            DocWeight finalDocWeight = mRankedDocs.poll();
-            Posting finalPosting = mPostingsMap.get((finalDocWeight.getDocId()));
-            // re-update the doc weight to ensure it preserves the final calculated values
-            finalPosting.setDocWeight(finalDocWeight);
-            results.add(finalPosting);
+        // only the top K docs get a posting, ordered from the lowest ranked to the highest
+        return topDocs.toPostings(context);
+    }
+
+    // walks all the query terms' postings together in docId order, skipping the docs that can't make the top K
+    private List<Posting> rankDocumentAtATime(QueryContext context, List<String> processedTerms, int k, boolean useBlockMaxima) {
+        List<PostingsCursor> cursors = new ArrayList<>();
+        double[] queryWeights = new double[processedTerms.size()];
+        for (String term : processedTerms) {
+            PostingsCursor postings = context.postingsCursor(term);
+            queryWeights[cursors.size()] = context.addQueryWeight(term, postings.cost());
+            cursors.add(postings);
         }
+        return new WandEvaluator(context, cursors, queryWeights, useBlockMaxima).rank(k);
+    }
 
-        return results;
+    // reads the query terms' impact-ordered postings from the highest impacts down, stopping once the top K is settled
+    private List<Posting> rankScoreAtATime(QueryContext context, List<String> processedTerms, int k) {
+        List<PostingsCursor> cursors = new ArrayList<>();
+        List<ImpactCursor> impacts = new ArrayList<>();
+        double[] queryWeights = new double[processedTerms.size()];
+        for (String term : processedTerms) {
+            ImpactCursor termImpacts = context.impactCursor(term);
+            if (termImpacts == null) {
+                // the index wasn't written with impact-ordered postings
+                context.clearQueryWeights();
+                return rankTermAtATime(context, processedTerms, k);
+            }
+            PostingsCursor postings = context.postingsCursor(term);
+            queryWeights[cursors.size()] = context.addQueryWeight(term, postings.cost());
+            cursors.add(postings);
+            impacts.add(termImpacts);
+        }
+        return new ScoreAtATimeEvaluator(context, cursors, queryWeights, impacts).rank(k);
     }
 
     @Override
-    public List<Posting> getPostings(TokenProcessor processor, Index index) {
+    public List<Posting> getPostings(QueryContext context) {
         List<Posting> results = new ArrayList<>();
-        // process query terms with the passed in processor before ranking
-        for (String term : mTerms) {
-            mProcessedTerms.addAll(processor.processToken(term));
-        }
-
         // loop through each processed term in the query (mTerms)
-        for (String term : mProcessedTerms) {
-            List<Posting> postings = index.getPostingsWithoutPositions(term);
+        for (String term : getProcessedTerms(context.getProcessor())) {
+            List<Posting> postings = context.getIndex().getPostingsWithoutPositions(term);
             results.addAll(postings);
         }
         return results;
     }
 
-    public List<String> getProcessedTerms() {
-        return mProcessedTerms;
-    }
-
-    public List<QueryTermWeight> getQueryWeights() {
-        return mQueryWeights;
+    @Override
+    public List<String> getProcessedTerms(TokenProcessor processor) {
+        List<String> processedTerms = new ArrayList<>();
+        for (String term : mTerms) {
+            processedTerms.addAll(processor.processToken(term));
+        }
+        return processedTerms;
     }
 
-    public void setKterms(int k) {
-        mKterms = k;
+    /**
+     * The docs of a ranked run ordered from the highest ranked down. Runs hand them back from the lowest ranked to the highest
+     * (the order they leave the top K heap in), so this is what anyone reading them in rank order should go through.
+     */
+    public static List<Posting> highestRankedFirst(List<Posting> results) {
+        List<Posting> ranked = new ArrayList<>(results);
+        Collections.reverse(ranked);
+        return ranked;
     }
 
     public String toString() {
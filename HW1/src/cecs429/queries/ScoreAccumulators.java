@@ -0,0 +1,76 @@
+package cecs429.queries;
+
+import java.util.Arrays;
+
+/**
+ * Dense A(d) accumulators for term-at-a-time ranking: one double per docId, plus the list of docIds the current query
+ * has touched so the results can be collected without scanning the whole array.
+ * <p>
+ * Each QueryContext keeps one instance and reuses it for every query it runs. Instead of clearing the scores between queries,
+ * every doc is stamped with the query that last wrote to it, so starting a new query is just bumping a counter and any
+ * score with an old stamp is treated as untouched.
+ */
+final class ScoreAccumulators {
+    private double[] mScores = new double[0];
+    private int[] mStamps = new int[0]; // the query that last wrote each doc's score
+    private int mQuery;
+    private int[] mTouched = new int[64];
+    private int mTouchedCount;
+
+    ScoreAccumulators() {
+    }
+
+    /**
+     * Starts a new query, sizing the accumulators for a corpus of the given number of docs.
+     */
+    void reset(int documentCount) {
+        if (mScores.length < documentCount) {
+            grow(documentCount);
+        }
+        mQuery++;
+        // after ~4 billion queries the stamps would start coming around again, so clear them once instead
+        if (mQuery == 0) {
+            Arrays.fill(mStamps, 0);
+            mQuery = 1;
+        }
+        mTouchedCount = 0;
+    }
+
+    /**
+     * Adds the increment to the doc's accumulator, starting one for the doc if this is the first term found in it.
+     */
+    void add(int docId, double increment) {
+        if (docId >= mScores.length) {
+            grow(Math.max(docId + 1, mScores.length * 2));
+        }
+        if (mStamps[docId] != mQuery) {
+            mStamps[docId] = mQuery;
+            mScores[docId] = increment;
+            if (mTouchedCount == mTouched.length) {
+                mTouched = Arrays.copyOf(mTouched, mTouchedCount * 2);
+            }
+            mTouched[mTouchedCount++] = docId;
+        } else {
+            mScores[docId] += increment;
+        }
+    }
+
+    int touchedCount() {
+        return mTouchedCount;
+    }
+
+    // the i'th doc touched by the current query, in the order they were first touched
+    int touchedDoc(int i) {
+        return mTouched[i];
+    }
+
+    double score(int docId) {
+        return mScores[docId];
+    }
+
+    // new stamps start at 0, which never matches the current query, so the new docs start out untouched
+    private void grow(int documentCount) {
+        mScores = Arrays.copyOf(mScores, documentCount);
+        mStamps = Arrays.copyOf(mStamps, documentCount);
+    }
+}
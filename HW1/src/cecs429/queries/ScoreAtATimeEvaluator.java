@@ -0,0 +1,105 @@
+package cecs429.queries;
+
+import cecs429.indexes.ImpactCursor;
+import cecs429.indexes.Posting;
+import cecs429.indexes.PostingsCursor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ranks a bag of words query score-at-a-time over the impact-ordered postings. Every query term's postings are split
+ * into segments of docs that share the same quantized impact (w(q,t) * w(d,t) / Ld), and the segment with the highest
+ * impact across all the terms is always read next, so the docs that matter most get their scores first.
+ * <p>
+ * Once the impacts still left to read can't lift any doc outside the current top K above the K'th doc, the rest of the
+ * postings are never read. The impacts are quantized (and rounded up), so they only pick which K docs make it; those
+ * docs are then scored exactly from the docId ordered postings, the same way the term-at-a-time path scores them.
+ */
+final class ScoreAtATimeEvaluator {
+    private final QueryContext mContext;
+    private final PostingsCursor[] mCursors; // docId ordered postings of each processed query term, for the exact scores
+    private final double[] mQueryWeights; // w(q,t) of each cursor's term
+    private final ImpactCursor[] mImpacts; // impact-ordered postings of each term, in the same order
+
+    ScoreAtATimeEvaluator(QueryContext context, List<PostingsCursor> cursors, double[] queryWeights, List<ImpactCursor> impacts) {
+        mContext = context;
+        mCursors = cursors.toArray(new PostingsCursor[0]);
+        mQueryWeights = queryWeights;
+        mImpacts = impacts.toArray(new ImpactCursor[0]);
+    }
+
+    /**
+     * Returns the K highest scoring docs, ordered from the lowest ranked to the highest.
+     */
+    List<Posting> rank(int k) {
+        ScoreAccumulators accumulators = mContext.accumulators();
+        int readSinceCheck = 0;
+
+        while (true) {
+            ImpactCursor next = null;
+            double remaining = 0;
+            for (ImpactCursor impacts : mImpacts) {
+                if (impacts.hasSegment()) {
+                    remaining += impacts.impact();
+                    if (next == null || impacts.impact() > next.impact()) {
+                        next = impacts;
+                    }
+                }
+            }
+            if (next == null) {
+                break;
+            }
+
+            // checking costs a pass over every touched doc, so only do it after reading about a quarter as many postings again
+            if (k > 0 && readSinceCheck >= accumulators.touchedCount() / 4) {
+                if (cannotChange(accumulators, k, remaining)) {
+                    break;
+                }
+                readSinceCheck = 0;
+            }
+
+            double impact = next.impact();
+            for (int docId = next.nextDoc(); docId != PostingsCursor.NO_MORE_DOCS; docId = next.nextDoc()) {
+                accumulators.add(docId, impact);
+            }
+            readSinceCheck += next.segmentSize();
+            next.nextSegment();
+        }
+
+        // pick the K docs with the highest impact scores, then score them exactly in increasing docId order
+        TopDocsCollector candidates = new TopDocsCollector(k);
+        for (int i = 0; i < accumulators.touchedCount(); i++) {
+            int docId = accumulators.touchedDoc(i);
+            candidates.offer(docId, accumulators.score(docId));
+        }
+        int[] docIds = candidates.docIds();
+        Arrays.sort(docIds);
+
+        TopDocsCollector topDocs = new TopDocsCollector(k);
+        for (PostingsCursor cursor : mCursors) {
+            cursor.nextDoc();
+        }
+        for (int docId : docIds) {
+            for (PostingsCursor cursor : mCursors) {
+                cursor.advance(docId);
+            }
+            topDocs.offer(docId, WandEvaluator.score(mContext, mCursors, mQueryWeights, docId));
+        }
+        return topDocs.toPostings(mContext);
+    }
+
+    // whether the impacts left to read are too small for the doc just outside the top K (or any untouched doc) to catch up with the K'th doc
+    private static boolean cannotChange(ScoreAccumulators accumulators, int k, double remaining) {
+        if (accumulators.touchedCount() <= k) {
+            return false;
+        }
+        TopDocsCollector best = new TopDocsCollector(k + 1);
+        for (int i = 0; i < accumulators.touchedCount(); i++) {
+            int docId = accumulators.touchedDoc(i);
+            best.offer(docId, accumulators.score(docId));
+        }
+        // impacts are never negative, so the K+1'th doc is at least as far along as any untouched doc
+        return best.threshold() + remaining < best.secondThreshold();
+    }
+}
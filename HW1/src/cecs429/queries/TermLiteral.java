@@ -29,12 +29,12 @@ public class TermLiteral implements QueryComponent {
 
 	// Since an Index can already give the postings for a single term with its own getPostings method, a TermLiteral simply calls that method on the given Index.
 	@Override
-	public List<Posting> getPostings(TokenProcessor processor, Index index) {
+	public List<Posting> getPostings(QueryContext context) {
 		try {
-			List<String> processedTerms = processor.processToken(mTerm);
+			List<String> processedTerms = getProcessedTerms(context.getProcessor());
 			List<Posting> results = new ArrayList<>();
 			for (String t : processedTerms) {
-				results.addAll(index.getPostings(t));
+				results.addAll(context.getIndex().getPostingsWithoutPositions(t));
 			}
 			return results;
 		}
@@ -45,13 +45,14 @@ public class TermLiteral implements QueryComponent {
 	}
 
 	@Override
-	public List<String> getProcessedTerms() {
-		return null;
+	public List<String> getProcessedTerms(TokenProcessor processor) {
+		return processor.processToken(mTerm);
 	}
 
 	@Override
-	public List<Posting> getPostingsWithoutPositions(TokenProcessor processor, Index activeIndex) {
-		return null;
+	public List<Posting> getPostingsWithoutPositions(QueryContext context) {
+		// a single term never needs its positions, so getPostings() already avoids reading them
+		return getPostings(context);
 	}
 
 	@Override
@@ -0,0 +1,136 @@
+package cecs429.queries;
+
+import cecs429.indexes.Posting;
+import cecs429.weights.DocWeight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the K best scoring docs seen so far in a min-heap of primitive arrays, so ranking a query doesn't create an
+ * object for every doc it scores. Docs are ordered by score, and docs with the same score by docId (the lower docId
+ * ranks higher), so the same top K comes out no matter what order the docs are offered in.
+ */
+final class TopDocsCollector {
+    private final int mK;
+    private final int[] mDocIds;
+    private final double[] mScores;
+    private int mSize;
+
+    TopDocsCollector(int k) {
+        mK = Math.max(k, 0);
+        mDocIds = new int[mK];
+        mScores = new double[mK];
+    }
+
+    /**
+     * Offers a scored doc, keeping it only if it ranks among the best K so far.
+     */
+    void offer(int docId, double score) {
+        if (mSize < mK) {
+            mDocIds[mSize] = docId;
+            mScores[mSize] = score;
+            siftUp(mSize++);
+        } else if (mK > 0 && ranksAbove(score, docId, mScores[0], mDocIds[0])) {
+            // replace the worst of the best K
+            mDocIds[0] = docId;
+            mScores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    boolean isFull() {
+        return mSize == mK;
+    }
+
+    /**
+     * The score a new doc has to beat to get into the top K, once there are K docs; negative infinity until then.
+     */
+    double threshold() {
+        return isFull() && mK > 0 ? mScores[0] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * The score of the second lowest ranked doc kept so far; negative infinity if there aren't two yet.
+     */
+    double secondThreshold() {
+        // the second lowest is always one of the root's children
+        if (mSize < 2) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return mSize > 2 ? Math.min(mScores[1], mScores[2]) : mScores[1];
+    }
+
+    // the docIds kept so far, in no particular order
+    int[] docIds() {
+        return Arrays.copyOf(mDocIds, mSize);
+    }
+
+    /**
+     * Empties the collector into a list of postings, one per doc, from the lowest ranked to the highest.
+     * Each posting's DocWeight carries the doc's Ld and its final score as the accumulator.
+     */
+    List<Posting> toPostings(QueryContext context) {
+        List<Posting> results = new ArrayList<>(mSize);
+        while (mSize > 0) {
+            int docId = mDocIds[0];
+            double score = mScores[0];
+            mSize--;
+            mDocIds[0] = mDocIds[mSize];
+            mScores[0] = mScores[mSize];
+            siftDown(0);
+
+            DocWeight docWeight = new DocWeight(docId);
+            docWeight.setValue(context.docWeight(docId));
+            docWeight.setAccumulator(score);
+            Posting posting = new Posting(docId);
+            posting.setDocWeight(docWeight);
+            results.add(posting);
+        }
+        return results;
+    }
+
+    private static boolean ranksAbove(double score, int docId, double otherScore, int otherDocId) {
+        int result = Double.compare(score, otherScore);
+        return result != 0 ? result > 0 : docId < otherDocId;
+    }
+
+    private void siftUp(int i) {
+        int docId = mDocIds[i];
+        double score = mScores[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksAbove(mScores[parent], mDocIds[parent], score, docId)) {
+                break;
+            }
+            mDocIds[i] = mDocIds[parent];
+            mScores[i] = mScores[parent];
+            i = parent;
+        }
+        mDocIds[i] = docId;
+        mScores[i] = score;
+    }
+
+    private void siftDown(int i) {
+        int docId = mDocIds[i];
+        double score = mScores[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= mSize) {
+                break;
+            }
+            if (child + 1 < mSize && ranksAbove(mScores[child], mDocIds[child], mScores[child + 1], mDocIds[child + 1])) {
+                child++;
+            }
+            if (!ranksAbove(score, docId, mScores[child], mDocIds[child])) {
+                break;
+            }
+            mDocIds[i] = mDocIds[child];
+            mScores[i] = mScores[child];
+            i = child;
+        }
+        mDocIds[i] = docId;
+        mScores[i] = score;
+    }
+}
@@ -0,0 +1,164 @@
+package cecs429.queries;
+
+import cecs429.indexes.Posting;
+import cecs429.indexes.PostingsCursor;
+
+import java.util.List;
+
+/**
+ * Ranks a bag of words query document-at-a-time with WAND (weak AND) pruning. The query terms' cursors are walked
+ * together in docId order, and each term's upper bound (its max w(d,t) / Ld times its w(q,t)) is used to find the
+ * first doc whose best possible score could still beat the current top K. Any doc before it is skipped without ever
+ * being scored, so common terms only get decoded where a rarer term makes the doc worth looking at.
+ * <p>
+ * With block maxima turned on (Block-Max WAND), the pivot is also checked against the max scores of the blocks of
+ * postings it falls in. If even those can't beat the top K, every doc up to the end of the nearest block is skipped,
+ * which lets long lists of common terms be jumped over a whole block at a time.
+ * <p>
+ * A doc's score is added up in the same order and with the same operations as the term-at-a-time path, and docs are
+ * visited in increasing docId order, so the top K docs (including how ties are broken) are exactly the same.
+ */
+final class WandEvaluator {
+    // the bounds are products of rounded doubles, so they get a tiny bit of slack to make sure rounding can never let a
+    // doc's exact score go over the bound that was supposed to cover it
+    private static final double BOUND_SLACK = 1 + 1e-9;
+
+    private final QueryContext mContext;
+    private final PostingsCursor[] mCursors; // one per processed query term, in query order
+    private final double[] mQueryWeights; // w(q,t) of each cursor's term
+    private final double[] mUpperBounds; // the most each cursor's term can add to any doc's score
+    private final int[] mOrder; // cursor indexes, sorted by the docId each cursor is on
+    private final boolean mUseBlockMaxima;
+
+    WandEvaluator(QueryContext context, List<PostingsCursor> cursors, double[] queryWeights, boolean useBlockMaxima) {
+        int count = cursors.size();
+        mContext = context;
+        mUseBlockMaxima = useBlockMaxima;
+        mCursors = cursors.toArray(new PostingsCursor[0]);
+        mQueryWeights = queryWeights;
+        mUpperBounds = new double[count];
+        mOrder = new int[count];
+        for (int i = 0; i < count; i++) {
+            mUpperBounds[i] = mCursors[i].maxScore() * mQueryWeights[i] * BOUND_SLACK;
+            mOrder[i] = i;
+        }
+    }
+
+    /**
+     * Returns the K highest scoring docs, ordered from the lowest ranked to the highest.
+     */
+    List<Posting> rank(int k) {
+        TopDocsCollector topDocs = new TopDocsCollector(k);
+        for (PostingsCursor cursor : mCursors) {
+            cursor.nextDoc();
+        }
+        sortCursors();
+
+        while (true) {
+            int pivot = findPivot(topDocs.threshold());
+            if (pivot < 0) {
+                break;
+            }
+            int pivotDoc = mCursors[mOrder[pivot]].docId();
+            // every other cursor on the pivot doc counts towards it as well
+            while (pivot + 1 < mOrder.length && mCursors[mOrder[pivot + 1]].docId() == pivotDoc) {
+                pivot++;
+            }
+
+            if (mUseBlockMaxima) {
+                int nextDoc = skipBlocks(pivot, pivotDoc, topDocs.threshold());
+                if (nextDoc > pivotDoc) {
+                    // nothing from the pivot doc up to the end of the nearest block can make the top K
+                    for (int i = 0; i <= pivot; i++) {
+                        mCursors[mOrder[i]].advance(nextDoc);
+                    }
+                    sortCursors();
+                    continue;
+                }
+            }
+
+            if (mCursors[mOrder[0]].docId() == pivotDoc) {
+                // every cursor that could be on the pivot doc is, so it's worth scoring
+                topDocs.offer(pivotDoc, score(mContext, mCursors, mQueryWeights, pivotDoc));
+                for (PostingsCursor cursor : mCursors) {
+                    if (cursor.docId() == pivotDoc) {
+                        cursor.nextDoc();
+                    }
+                }
+            } else {
+                // the terms before the pivot can't lift any doc before the pivot doc into the top K on their own, so jump them ahead
+                for (int i = 0; i < pivot; i++) {
+                    mCursors[mOrder[i]].advance(pivotDoc);
+                }
+            }
+            sortCursors();
+        }
+        return topDocs.toPostings(mContext);
+    }
+
+    // finds the first cursor (in docId order) where the upper bounds so far add up to more than the threshold, or -1 if none do
+    private int findPivot(double threshold) {
+        double bound = 0;
+        for (int i = 0; i < mOrder.length; i++) {
+            PostingsCursor cursor = mCursors[mOrder[i]];
+            if (cursor.docId() == PostingsCursor.NO_MORE_DOCS) {
+                return -1;
+            }
+            bound += mUpperBounds[mOrder[i]];
+            // a doc that only ties the threshold comes after every doc already in the top K, so it would lose the tie
+            if (bound > threshold) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // checks the max scores of the blocks the pivot doc falls in for the cursors up to the pivot; if they can't beat the threshold, returns
+    // the first doc after the pivot doc that they (or any cursor after the pivot) could be on, and otherwise just returns the pivot doc
+    private int skipBlocks(int pivot, int pivotDoc, double threshold) {
+        double bound = 0;
+        long nextDoc = PostingsCursor.NO_MORE_DOCS;
+        for (int i = 0; i <= pivot; i++) {
+            PostingsCursor cursor = mCursors[mOrder[i]];
+            int blockLastDoc = cursor.advanceShallow(pivotDoc);
+            bound += cursor.blockMaxScore() * mQueryWeights[mOrder[i]] * BOUND_SLACK;
+            nextDoc = Math.min(nextDoc, (long) blockLastDoc + 1);
+        }
+        if (bound > threshold) {
+            return pivotDoc;
+        }
+        // a cursor past the pivot could add to any doc from the one it's on
+        if (pivot + 1 < mOrder.length) {
+            nextDoc = Math.min(nextDoc, mCursors[mOrder[pivot + 1]].docId());
+        }
+        return (int) Math.min(nextDoc, PostingsCursor.NO_MORE_DOCS);
+    }
+
+    // adds up the score of the doc the cursors are on in query term order, exactly like the term-at-a-time accumulators do
+    static double score(QueryContext context, PostingsCursor[] cursors, double[] queryWeights, int docId) {
+        double score = 0;
+        for (int i = 0; i < cursors.length; i++) {
+            if (cursors[i].docId() == docId) {
+                score += cursors[i].weight() * queryWeights[i];
+            }
+        }
+        if (score != 0) {
+            score = score / context.docWeight(docId);
+        }
+        return score;
+    }
+
+    // insertion sort, since queries only have a handful of terms and the order barely changes between steps
+    private void sortCursors() {
+        for (int i = 1; i < mOrder.length; i++) {
+            int cursor = mOrder[i];
+            int docId = mCursors[cursor].docId();
+            int j = i - 1;
+            while (j >= 0 && mCursors[mOrder[j]].docId() > docId) {
+                mOrder[j + 1] = mOrder[j];
+                j--;
+            }
+            mOrder[j + 1] = cursor;
+        }
+    }
+}
@@ -8,6 +8,28 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class AdvancedTokenProcessor implements TokenProcessor {
+    private final CachingStemmer mStemmer; // null if the processor uses the calling thread's stemmer
+
+    public AdvancedTokenProcessor() {
+        mStemmer = null;
+    }
+
+    private AdvancedTokenProcessor(CachingStemmer stemmer) {
+        mStemmer = stemmer;
+    }
+
+    /**
+     * A processor that keeps a stemmer (and memo table) of its own instead of using the calling thread's. It must only be
+     * used by one thread at a time, but it can be handed from one thread to the next, so it suits processors that are reused
+     * from a pool by short-lived threads (like a virtual thread per request), which would otherwise each build a stemmer.
+     */
+    public static AdvancedTokenProcessor withOwnStemmer() {
+        return new AdvancedTokenProcessor(new CachingStemmer());
+    }
+
+    private CachingStemmer stemmer() {
+        return mStemmer != null ? mStemmer : STEMMERS.get();
+    }
 
     /**
      * Normalizes a token into a term (or list of terms)
@@ -16,25 +38,70 @@ public class AdvancedTokenProcessor implements TokenProcessor {
      */
     @Override
     public List<String> processToken(String token) {
-        // perform all of necessary processing functions on the single original token before removing hyphens
-        String token1 = fixNonAlphaNumerics(token);
-       // System.out.println("Testing alphanumberics: " + token1);
-        String token2 = fixPunctuation(token1);
-        //System.out.println("Testing punc:  " + token2);
-        List<String> terms = fixHyphens(token2);
-        //System.out.println("Testing terms:  " + terms);
         List<String> stemmedTerms = new ArrayList<>();
+        char[] tokenCharacters = token.toCharArray();
+        processToken(tokenCharacters, tokenCharacters.length, 0, (term, position) -> stemmedTerms.add(term));
+        // System.out.println("Testing processToken: " + stemmedTerms.toString());
+        return stemmedTerms;
+    }
 
-        // perform the case and stemming functions on each term in the list
-        for (String t : terms) {
-            String lowerTerm = fixCase(t);
-            String stem = stem(lowerTerm);
-            //System.out.println("Testing stem for the term '" + lowerTerm + "' is:" + stem);
+    /**
+     * Normalizes the first length chars of the token into its term(s) and passes each one to the consumer with the given position.
+     * This makes the same terms (in the same order) as running fixNonAlphaNumerics, fixPunctuation, fixHyphens, fixCase and stem
+     * one after another, but it works on the chars in place, so no intermediate strings are made; the token array is overwritten.
+     * Stems that are already in the stemmer's memo table are handed out as-is, so most tokens don't allocate anything at all.
+     */
+    public void processToken(char[] token, int length, int position, TermConsumer consumer) {
+        // trim the non-alphanumeric characters from both ends; a single character is always kept as-is
+        int first = 0;
+        int last = length - 1;
+        if (length > 1) {
+            for (int i = 0; i < length; i++) {
+                if (Character.isAlphabetic(token[i]) || Character.isDigit(token[i])) {
+                    first = i;
+                    break;
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (Character.isAlphabetic(token[i]) || Character.isDigit(token[i])) {
+                    last = i;
+                    break;
+                }
+            }
+        }
 
-            stemmedTerms.add(stem);
+        // shift the trimmed chars to the front of the array while dropping the quotes, and note whether there are any hyphens
+        int trimmedLength = 0;
+        boolean hasHyphen = false;
+        for (int i = first; i <= last; i++) {
+            char c = token[i];
+            if (c != '\'' && c != '"') {
+                token[trimmedLength++] = c;
+                hasHyphen |= c == '-';
+            }
+        }
+
+        CachingStemmer stemmer = stemmer();
+        if (!hasHyphen) {
+            consumer.accept(stemmer.stem(token, 0, trimmedLength, false), position);
+            return;
+        }
+
+        // the whole token without its hyphens (or parentheses) comes first, followed by each piece between the hyphens that's
+        // at least 2 chars long
+        consumer.accept(stemmer.stem(token, 0, trimmedLength, true), position);
+        int start = 0;
+        for (int i = 0; i < trimmedLength; i++) {
+            if (token[i] == '-') {
+                if (i - start > 1) {
+                    consumer.accept(stemmer.stem(token, start, i, false), position);
+                }
+                start = i + 1;
+            }
+            if (i == trimmedLength - 1 && trimmedLength - start > 1) {
+                consumer.accept(stemmer.stem(token, start, trimmedLength, false), position);
+            }
         }
-        // System.out.println("Testing processToken: " + stemmedTerms.toString());
-        return stemmedTerms;
     }
 
     // Removes all non-alphanumeric characters from the beginning and end of the token, but not the middle.
@@ -164,22 +231,87 @@ public class AdvancedTokenProcessor implements TokenProcessor {
     }
 
     public String stem(String token) {
-        String term = "";
-        try {
-            Class<?> stemClass = Class.forName("org.tartarus.snowball.ext." + "english" + "Stemmer");
-            SnowballStemmer stemmer = (SnowballStemmer) stemClass.getDeclaredConstructor().newInstance();
-
-            stemmer.setCurrent(token);
-            stemmer.stem();
-            term = stemmer.getCurrent();
-            return term;
-            //System.out.println("testing with github way term is: " + term);
+        return stemmer().stem(token);
+    }
+
+    // every thread gets its own stemmer and memo table, so the parallel indexer's workers never share any mutable state
+    private static final ThreadLocal<CachingStemmer> STEMMERS = ThreadLocal.withInitial(CachingStemmer::new);
+
+    // String.toLowerCase() only matches a plain ASCII case shift when the default locale doesn't have its own rules for 'I'
+    private static final boolean ASCII_LOWERCASE_IS_SAFE = "I".toLowerCase().equals("i");
+
+    /**
+     * Wraps a single reusable Snowball stemmer with a fixed-size memo table of recent token -> stem results.
+     * Word frequencies are heavily skewed, so most tokens are found in the table without running the stemmer at all.
+     * Each token hashes to one slot and a new entry simply replaces whatever was there, which keeps the table bounded
+     * without any bookkeeping.
+     */
+    private static class CachingStemmer {
+        private static final int TABLE_SIZE = 1 << 14; // must be a power of 2
+
+        private final SnowballStemmer mStemmer = new englishStemmer();
+        private final String[] mTokens = new String[TABLE_SIZE];
+        private final String[] mStems = new String[TABLE_SIZE];
+        private char[] mTerm = new char[32]; // scratch space for the lowercased term being looked up
+
+        // lowercases and stems the chars in [from, to), leaving out any hyphens and parentheses if asked to
+        private String stem(char[] chars, int from, int to, boolean removeHyphens) {
+            if (mTerm.length < to - from) {
+                mTerm = new char[Math.max(to - from, mTerm.length * 2)];
+            }
+            int length = 0;
+            boolean ascii = ASCII_LOWERCASE_IS_SAFE;
+            for (int i = from; i < to; i++) {
+                char c = chars[i];
+                if (removeHyphens && (c == '-' || c == '(' || c == ')')) {
+                    continue;
+                }
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                ascii &= c < 0x80;
+                mTerm[length++] = c;
+            }
+            // anything outside of ASCII goes through String.toLowerCase, since a few characters change length when lowercased
+            if (!ascii) {
+                String original = removeHyphens ? new String(chars, from, to - from).replaceAll("[\\s\\-()]", "") : new String(chars, from, to - from);
+                return stem(original.toLowerCase());
+            }
+
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + mTerm[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+            String cachedToken = mTokens[slot];
+            if (cachedToken != null && cachedToken.length() == length) {
+                int i = 0;
+                while (i < length && cachedToken.charAt(i) == mTerm[i]) {
+                    i++;
+                }
+                if (i == length) {
+                    return mStems[slot];
+                }
+            }
+            return stem(new String(mTerm, 0, length));
         }
-        catch (Exception ex) {
-            return null;
+
+        private String stem(String token) {
+            int hash = token.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+            String cachedToken = mTokens[slot];
+            if (cachedToken != null && cachedToken.equals(token)) {
+                return mStems[slot];
+            }
+
+            mStemmer.setCurrent(token);
+            mStemmer.stem();
+            String stem = mStemmer.getCurrent();
+
+            mTokens[slot] = token;
+            mStems[slot] = stem;
+            return stem;
         }
-        //System.out.println("Testing Stem: " + term);
-       // return term;
     }
 }
 
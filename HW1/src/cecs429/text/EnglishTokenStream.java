@@ -6,43 +6,109 @@ import java.util.*;
 
 /**
  * An EnglishTokenStream creates tokens by splitting on whitespace.
+ * The content is scanned a character at a time through a reusable buffer, and processTerms() can hand each token's
+ * characters straight to an AdvancedTokenProcessor without ever making a String out of the raw token.
  */
 public class EnglishTokenStream implements TokenStream {
+	private static final int READ_BUFFER_SIZE = 8192;
+
 	private Reader mReader;
-	
+	private final char[] mReadBuffer = new char[READ_BUFFER_SIZE];
+	private int mReadPosition;
+	private int mReadLimit;
+	private char[] mToken = new char[32];
+	private int mTokenLength;
+
 	private class EnglishTokenIterator implements Iterator<String> {
-		private Scanner mScanner;
-		
-		private EnglishTokenIterator() {
-			// A Scanner automatically tokenizes text by splitting on whitespace. By composing a Scanner we don't have to
-			// duplicate that behavior.
-			mScanner = new Scanner(mReader);
-		}
-	
+		private boolean mHasToken;
+		private boolean mLookedAhead;
+
 		@Override
 		public boolean hasNext() {
-			return mScanner.hasNext();
+			if (!mLookedAhead) {
+				mHasToken = nextToken();
+				mLookedAhead = true;
+			}
+			return mHasToken;
 		}
-		
+
 		@Override
 		public String next() {
-			return mScanner.next();
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			mLookedAhead = false;
+			return new String(mToken, 0, mTokenLength);
 		}
 	}
-	
+
 	/**
 	 * Constructs an EnglishTokenStream to create tokens from the given Reader.
 	 */
 	public EnglishTokenStream(Reader inputStream) {
 		mReader = inputStream;
 	}
-	
+
 	@Override
 	public Iterable<String> getTokens() {
 		// Fancy trick to convert an Iterator to an Iterable.
 		return () -> new EnglishTokenIterator();
 	}
-	
+
+	/**
+	 * Normalizes every token in the stream with the given processor and passes each resulting term to the consumer,
+	 * along with the position of the token it came from. Returns the number of tokens in the stream.
+	 */
+	public int processTerms(AdvancedTokenProcessor processor, TermConsumer consumer) {
+		int position = 0;
+		while (nextToken()) {
+			// the token buffer is refilled for the next token, so the processor is free to rearrange it
+			processor.processToken(mToken, mTokenLength, position, consumer);
+			// if normalizing a token produces more than one term, they are all posted at the same position
+			position += 1;
+		}
+		return position;
+	}
+
+	// reads the next run of non-whitespace characters into mToken; returns false once the content runs out
+	private boolean nextToken() {
+		mTokenLength = 0;
+		int c;
+		// skip the whitespace before the token
+		do {
+			c = read();
+			if (c < 0) {
+				return false;
+			}
+		} while (Character.isWhitespace((char) c));
+
+		do {
+			if (mTokenLength == mToken.length) {
+				mToken = Arrays.copyOf(mToken, mToken.length * 2);
+			}
+			mToken[mTokenLength++] = (char) c;
+			c = read();
+		} while (c >= 0 && !Character.isWhitespace((char) c));
+		return true;
+	}
+
+	private int read() {
+		if (mReadPosition == mReadLimit) {
+			try {
+				mReadLimit = mReader.read(mReadBuffer, 0, mReadBuffer.length);
+			} catch (IOException ex) {
+				System.out.println("Failed to read the rest of the document's content");
+				mReadLimit = -1;
+			}
+			mReadPosition = 0;
+			if (mReadLimit <= 0) {
+				mReadLimit = 0;
+				return -1;
+			}
+		}
+		return mReadBuffer[mReadPosition++];
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (mReader != null)
@@ -0,0 +1,9 @@
+package cecs429.text;
+
+/**
+ * Receives the terms a TokenStream produces, along with the position of the token each one came from.
+ */
+@FunctionalInterface
+public interface TermConsumer {
+	void accept(String term, int position);
+}
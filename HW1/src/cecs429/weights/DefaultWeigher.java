@@ -1,21 +1,26 @@
 package cecs429.weights;
 
+import cecs429.indexes.DiskIndexDAO;
+
 import java.util.List;
-import static edu.csulb.Driver.ActiveConfiguration.activeCorpus;
-import static edu.csulb.Driver.ActiveConfiguration.indexDao;
 
 public class DefaultWeigher extends WeighingStrategy {
 
     // Default w(d,t) = 1 + ln(tf(t,d))
     @Override
-    public double calculateWdt(DocTermWeight w) {
-        return (1 + Math.log(w.getTermFrequency()));
+    public double calculateWdt(DocTermWeight w, DiskIndexDAO indexDao) {
+        return calculateWdt(w.getTermFrequency());
+    }
+
+    // only needs tf(t,d), so it can be worked out again at query time instead of being stored in the postings
+    public static double calculateWdt(int tfTd) {
+        return (1 + Math.log(tfTd));
     }
 
     // Default w(q,t) = 1  + ln(1 + N/Dft)
     @Override
-    public double calculateWqt(QueryTermWeight w) {
-        double fraction = activeCorpus.getCorpusSize();/// w.docFrequency;
+    public double calculateWqt(int dFt, int documentCount) {
+        double fraction = documentCount;/// dFt;
         return (1 + Math.log(fraction));
     }
 
@@ -26,21 +31,9 @@ public class DefaultWeigher extends WeighingStrategy {
         double sum = 0;
 
         for (DocTermWeight wDt : wDts ) {
-            double dubLog = Math.log(wDt.getValue());
-            dubLog = Math.pow(dubLog, 2.0);
-            double basicWeight = 1 + dubLog; //w(t,d) = 1 + ln(tf(t,d))
-            sum += basicWeight;
+            double basicWeight = calculateWdt(wDt.getTermFrequency()); //w(t,d) = 1 + ln(tf(t,d))
+            sum += basicWeight * basicWeight;
         }
         return Math.sqrt(sum);
     }
-
-
-    @Override
-    public double readLd(DocWeight w) {
-        double weight = 0.0;
-        int byteLocation = (w.getDocId() * 28); // 28 bytes used up for the 4 values written for each doc
-            // the default weighing strategy uses the normal docWeights(d) formula, this should be the first value written for each docId in the file
-        weight = indexDao.readDocWeight(byteLocation);
-        return weight;
-    }
 }
\ No newline at end of file
@@ -1,10 +1,8 @@
 package cecs429.weights;
 
 import edu.csulb.Driver.WeighingScheme;
-import edu.csulb.Driver.ActiveConfiguration;
 import cecs429.indexes.*;
 import cecs429.documents.*;
-import static edu.csulb.Driver.ActiveConfiguration.*;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -12,12 +10,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-import static edu.csulb.Driver.ActiveConfiguration.*;
-import static edu.csulb.Driver.RunMode.BUILD;
-
-public class DocTermWeight implements Weight {
+// not a Weight: w(d,t) can't be worked out from a scheme alone, since Okapi and Wacky also need the doc stats of the index it's in
+public class DocTermWeight {
     private String filePath;
-    private WeighingStrategy mWeigher;
     private String mTerm;
     private double mValue;
     private int mDocId;
@@ -33,18 +28,6 @@ public class DocTermWeight implements Weight {
         mTermFrequency = termFrequency;
     }
 
-    @Override
-    public void calculate(WeighingScheme scheme) {
-        mWeigher = scheme.getInstance();
-        mValue = mWeigher.calculateWdt(this);
-    }
-
-    @Override
-    public void read(WeighingScheme scheme) {
-        mWeigher = scheme.getInstance();
-        mValue = mWeigher.readWdt(this);
-    }
-
     public int getTermFrequency() {
         return mTermFrequency;
     }
@@ -53,18 +36,19 @@ public class DocTermWeight implements Weight {
         mTermFrequency = termFrequency;
     }
 
+    // the w(d,t) last set with setValue(); queries work it out under their own scheme with getValue(scheme, indexDao) instead
     public double getValue() {
-        // if the value hasn't been calculated yet, call calculate now with the current active scheme
-        if (mValue == 0) {
-            if (hasDiskIndex || runMode == BUILD) {
-                calculate(activeWeighingScheme);
-            } else {
-                read(activeWeighingScheme);
-            }
-        }
         return mValue;
     }
 
+    /**
+     * Works out w(d,t) under the given scheme, reading any doc stats it needs from the given index, and returns it.
+     * Nothing is kept, since the postings of an in-memory index can be read by several queries at once.
+     */
+    public double getValue(WeighingScheme scheme, DiskIndexDAO indexDao) {
+        return scheme.getInstance().calculateWdt(this, indexDao);
+    }
+
     public void setValue(double w) {
         mValue = w;
     }
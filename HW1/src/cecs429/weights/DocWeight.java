@@ -29,6 +29,7 @@ public class DocWeight implements Weight, Comparable<DocWeight> {
     private int mAvgTermFrequency;
     private List<DocTermWeight> mTermWeights; // list of  w(d,t) values for all the terms in the given doc
     private double mAccumulator;
+    private double[] mSchemeValues; // Ld under every weighing scheme, indexed by the scheme's ordinal
 
     public DocWeight(int docId) {
         mValue = 0;
@@ -74,7 +75,7 @@ public class DocWeight implements Weight, Comparable<DocWeight> {
     @Override
     public void read(WeighingScheme scheme) {
         mWeigher = scheme.getInstance();
-        mValue = mWeigher.readLd(this);
+        mValue = mWeigher.readLd(this, scheme);
     }
 
     public double getValue() {
@@ -90,6 +91,27 @@ public class DocWeight implements Weight, Comparable<DocWeight> {
         return mValue;
     }
 
+    /**
+     * Calculates Ld under every weighing scheme, so they can all be written to disk while the doc's term weights are still available.
+     */
+    public void calculateAll() {
+        WeighingScheme[] schemes = WeighingScheme.values();
+        mSchemeValues = new double[schemes.length];
+        for (WeighingScheme scheme : schemes) {
+            mSchemeValues[scheme.ordinal()] = scheme.getInstance().calculateLd(this);
+        }
+    }
+
+    /**
+     * Returns Ld under the given scheme, calculating it for every scheme the first time it's asked for.
+     */
+    public double getValue(WeighingScheme scheme) {
+        if (mSchemeValues == null) {
+            calculateAll();
+        }
+        return mSchemeValues[scheme.ordinal()];
+    }
+
     public double readValue() {
         read(activeWeighingScheme);
         return mValue;
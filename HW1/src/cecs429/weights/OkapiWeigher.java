@@ -1,19 +1,20 @@
 package cecs429.weights;
 
+import cecs429.indexes.DiskIndexDAO;
+
 import javax.print.Doc;
-import static edu.csulb.Driver.ActiveConfiguration.activeCorpus;
-import static edu.csulb.Driver.ActiveConfiguration.indexDao;
 
 public class OkapiWeigher extends WeighingStrategy {
 
     // Okapi w(d,t) = [2.2 * tf(t,d)] / [(1.2 * (0.25 + 0.75 * (docLength(d)/docLength(A))]
     @Override
-    public double calculateWdt(DocTermWeight w) {
+    public double calculateWdt(DocTermWeight w, DiskIndexDAO indexDao) {
         int docId = w.getDocId();
-        double tfTd = w.getTermFrequency();
-        long currDocLength = indexDao.readDocLength(docId);
-        int avgDocLength = indexDao.readAvgDocLength();
+        return calculateWdt(w.getTermFrequency(), indexDao.readDocLength(docId), indexDao.readAvgDocLength());
+    }
 
+    // the same w(d,t) from tf(t,d) and the doc stats alone, for when they're already in memory
+    public static double calculateWdt(double tfTd, long currDocLength, int avgDocLength) {
         double numerator = 2.2 * tfTd;
         // make sure the avgDocLength isn't zero
         if (avgDocLength == 0) {
@@ -26,10 +27,7 @@ public class OkapiWeigher extends WeighingStrategy {
 
     // Okapi w(q,t) = max[0.1, ln( [N - df(t) + 0.5] / [df(t) + 0.5]
     @Override
-    public double calculateWqt(QueryTermWeight w) {
-        int n = activeCorpus.getCorpusSize();
-        int dFt = w.getDft();
-
+    public double calculateWqt(int dFt, int n) {
         double fraction = (n - dFt + 0.5) / (dFt + 0.5);
         fraction = Math.log(fraction);
 
@@ -42,9 +40,4 @@ public class OkapiWeigher extends WeighingStrategy {
         return 1;
     }
 
-    @Override
-    public double readLd(DocWeight w) {
-        return 1;
-    }
-
 }
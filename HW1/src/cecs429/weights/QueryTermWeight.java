@@ -19,20 +19,21 @@ public class QueryTermWeight implements Weight {
     private WeighingStrategy mWeigher;
     private Document mDocument;
     private int mDocFrequency; // Dft
-    private int mCorpusSize = activeCorpus.getCorpusSize();
+    private int mDocumentCount; // N, the number of docs in the index the term was looked up in
 
 
     public QueryTermWeight() { };
 
-    public QueryTermWeight(String term, int docFrequency) {
+    public QueryTermWeight(String term, int docFrequency, int documentCount) {
         mDocFrequency = docFrequency;
         mTerm = term;
+        mDocumentCount = documentCount;
     }
 
     @Override
     public void calculate(WeighingScheme scheme) {
         mWeigher = scheme.getInstance();
-        mValue = mWeigher.calculateWqt(this);
+        mValue = mWeigher.calculateWqt(mDocFrequency, mDocumentCount);
     }
 
 
@@ -41,11 +42,16 @@ public class QueryTermWeight implements Weight {
     public void read(WeighingScheme scheme) {
     }
 
+    // the w(q,t) worked out by the last calculate() (or getValue(scheme)); a query's weights are worked out under its own scheme
     public double getValue() {
-        // if the value hasn't been calculated yet, call calculate now with the current active scheme
-        if (mValue == 0) {
-            calculate(activeWeighingScheme);
-        }
+        return mValue;
+    }
+
+    /**
+     * Calculates w(q,t) under the given scheme instead of the active one and returns it.
+     */
+    public double getValue(WeighingScheme scheme) {
+        calculate(scheme);
         return mValue;
     }
 
@@ -58,7 +64,7 @@ public class QueryTermWeight implements Weight {
     }
 
     public int getN() {
-        return mCorpusSize;
+        return mDocumentCount;
     }
 
     public int getDft() {
@@ -4,18 +4,18 @@ import edu.csulb.Driver.WeighingScheme;
 import edu.csulb.Driver.ActiveConfiguration;
 import cecs429.indexes.*;
 import cecs429.documents.*;
-import static edu.csulb.Driver.ActiveConfiguration.*;
-import static edu.csulb.Driver.ActiveConfiguration.activeCorpus;
 
 public class WackyWeigher extends WeighingStrategy {
 
     // Wacky w(d,t) = [1 + ln(tf(t,d))] / [1 + ln(avg(tf(t,d)))]
     @Override
-    public double calculateWdt(DocTermWeight w) {
+    public double calculateWdt(DocTermWeight w, DiskIndexDAO indexDao) {
         int docId = w.getDocId();
-        int tfTd = w.getTermFrequency();
-        int avgTfTd = indexDao.readAvgTermFrequency(docId);
+        return calculateWdt(w.getTermFrequency(), indexDao.readAvgTermFrequency(docId));
+    }
 
+    // the same w(d,t) from tf(t,d) and the doc's average tf(t,d) alone, for when they're already in memory
+    public static double calculateWdt(int tfTd, int avgTfTd) {
         double numerator = 1 + Math.log(tfTd);
         double denominator = 1 + Math.log(avgTfTd);
 
@@ -24,9 +24,7 @@ public class WackyWeigher extends WeighingStrategy {
 
     // Wacky w(q,t) = max[ 0, ln((N - df(t)) / df(t)) ]
     @Override
-    public double calculateWqt(QueryTermWeight w) {
-        int n = activeCorpus.getCorpusSize();
-        int dFt = w.getDft();
+    public double calculateWqt(int dFt, int n) {
         double fraction = ( Math.log(n - dFt) ) / dFt;
 
         return Math.max(0, fraction);
@@ -34,10 +32,7 @@ public class WackyWeigher extends WeighingStrategy {
 
     // Wacky Ld = sqrt(byteSize(d))
     public double calculateLd(DocWeight w) {
-        int docId = w.getDocId();
-        long byteSize = indexDao.readByteSize(docId);
-
-        return Math.sqrt(docId);
+        return Math.sqrt(w.getByteSize());
     }
 
 }
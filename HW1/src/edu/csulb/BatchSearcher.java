@@ -0,0 +1,161 @@
+package edu.csulb;
+
+import cecs429.indexes.DiskIndexDAO;
+import cecs429.indexes.Index;
+import cecs429.indexes.Posting;
+import cecs429.queries.QueryContext;
+import cecs429.queries.RankedQuery;
+import cecs429.queries.RankedQueryParser;
+import cecs429.text.AdvancedTokenProcessor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static edu.csulb.Driver.RankingStrategy;
+import static edu.csulb.Driver.WeighingScheme;
+
+/**
+ * Runs a file of ranked queries against an index on a pool of threads, without going through the interactive menus, and
+ * writes their results in TREC run format ("qid Q0 docNo rank score tag", one line per result) so they can be scored
+ * with trec_eval or compared between runs.
+ * <p>
+ * Every non-blank line of the queries file is one query, and its qid is its line number (starting at 1, so it lines up
+ * with the same line of a qrel file like the Evaluator's); a line can also give its own qid before a tab. Each line is read
+ * and parsed just once, as the file is streamed. The queries all share the one index, and every worker thread runs them
+ * with a QueryContext (and score accumulators) of its own. Results are written in query order as soon as every query
+ * before them is done, and only a few queries per thread are let ahead of the writer, so the whole run never sits in memory.
+ * A result's docNo is the doc's title, or its file name if it has no title.
+ */
+public class BatchSearcher {
+	private static final int QUERIES_AHEAD_PER_THREAD = 4; // how far ahead of the writer each thread may run
+
+	private final Index mIndex;
+	private final DiskIndexDAO mIndexDao;
+	private final int mDocumentCount;
+	private final WeighingScheme mScheme;
+	private final RankingStrategy mStrategy;
+	private final int mResultCount;
+	private final String mRunTag;
+
+	public BatchSearcher(Index index, DiskIndexDAO indexDao, int documentCount, WeighingScheme scheme, RankingStrategy strategy,
+						 int resultCount, String runTag) {
+		mIndex = index;
+		mIndexDao = indexDao;
+		mDocumentCount = documentCount;
+		mScheme = scheme;
+		mStrategy = strategy;
+		mResultCount = resultCount;
+		mRunTag = runTag;
+	}
+
+	/**
+	 * Runs every query of the queries file on the given number of threads and writes their results to the run file.
+	 * Returns the number of queries that were run.
+	 */
+	public int run(Path queriesFile, Path runFile, int threads) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		// pool threads live as long as the run, so each keeps one context for all the queries it runs
+		ThreadLocal<QueryContext> contexts = ThreadLocal.withInitial(() ->
+				new QueryContext(mIndex, new AdvancedTokenProcessor(), mScheme, mStrategy, mIndexDao, mDocumentCount));
+		RankedQueryParser parser = new RankedQueryParser();
+		ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+		int maxPending = Math.max(1, threads) * QUERIES_AHEAD_PER_THREAD;
+		int queryCount = 0;
+
+		try (BufferedReader reader = Files.newBufferedReader(queriesFile, StandardCharsets.UTF_8);
+			 BufferedWriter writer = Files.newBufferedWriter(runFile, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNum = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNum++;
+				int tab = line.indexOf('\t');
+				String qid = tab < 0 ? Integer.toString(lineNum) : line.substring(0, tab).trim();
+				String queryText = (tab < 0 ? line : line.substring(tab + 1)).trim();
+				if (queryText.isEmpty()) {
+					continue;
+				}
+				RankedQuery query = (RankedQuery) parser.parseQuery(queryText);
+				pending.add(executor.submit(() -> search(qid, query, contexts.get())));
+				queryCount++;
+
+				// the oldest query has to be written before any more are let ahead of it
+				if (pending.size() >= maxPending) {
+					writeNext(pending, writer);
+				}
+			}
+			while (!pending.isEmpty()) {
+				writeNext(pending, writer);
+			}
+		} finally {
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return queryCount;
+	}
+
+	private static void writeNext(ArrayDeque<Future<String>> pending, BufferedWriter writer) throws IOException {
+		try {
+			writer.write(pending.poll().get());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a query to finish", ex);
+		} catch (ExecutionException ex) {
+			throw new IOException("A query failed to run", ex.getCause());
+		}
+	}
+
+	// runs one query and returns its results as TREC run lines; a query that can't be run just has no results in the run
+	private String search(String qid, RankedQuery query, QueryContext context) {
+		List<Posting> results;
+		try {
+			// there can never be more than N results, so there's no need to make room for more
+			context.setResultCount(Math.max(1, Math.min(mResultCount, mDocumentCount)));
+			results = query.getPostingsWithoutPositions(context);
+		} catch (RuntimeException ex) {
+			System.out.println("Failed to run query " + qid + " '" + query + "': " + ex);
+			return "";
+		}
+		if (results == null) {
+			return "";
+		}
+		List<Posting> ranked = RankedQuery.highestRankedFirst(results);
+		int count = Math.min(ranked.size(), mResultCount);
+		StringBuilder lines = new StringBuilder(48 * count);
+		for (int i = 0; i < count; i++) {
+			Posting p = ranked.get(i);
+			lines.append(qid).append(" Q0 ").append(docNo(p.getDocumentId()))
+					.append(' ').append(i + 1)
+					.append(' ').append(p.getDocWeight().getAccumulator())
+					.append(' ').append(mRunTag).append('\n');
+		}
+		return lines.toString();
+	}
+
+	// the doc's title, or its file name (and failing that its docId) if it has no title or it can't be read
+	private String docNo(int docId) {
+		String docNo = mIndexDao.readDocTitle(docId);
+		if (docNo == null || docNo.isBlank()) {
+			docNo = mIndexDao.readDocFileName(docId);
+		}
+		if (docNo == null || docNo.isBlank()) {
+			return Integer.toString(docId);
+		}
+		// the run format is split on whitespace, so a docNo can't have any
+		return docNo.trim().replaceAll("\\s+", "_");
+	}
+}
@@ -40,6 +40,8 @@ public class Driver {
 		BUILD,
 		QUERY,
 		EVALUATE,
+		SERVE,
+		BATCH,
 		QUIT
 	}
 
@@ -84,6 +86,24 @@ public class Driver {
 		public abstract WeighingStrategy getInstance();
 	}
 
+	// enum wrapper for all the currently supported ways of evaluating a ranked query; all but SCORE_AT_A_TIME return exactly
+	// the same top K docs, so they can be swapped freely to compare how quickly each one gets there
+	public enum RankingStrategy {
+		TERM_AT_A_TIME, // score every posting of every query term into an accumulator per doc
+		WAND, // walk the query terms' postings together by docId, skipping docs whose best possible score can't make the top K
+		BLOCK_MAX_WAND, // like WAND, but also skip whole blocks of postings whose best possible scores can't make the top K
+		SCORE_AT_A_TIME // read the impact-ordered postings from the highest impacts down, stopping once the top K can't change; picks the top K by quantized impacts
+	}
+
+	// enum wrapper for all the currently supported ways of storing w(d,t) in postings.bin, from the most exact to the most compact;
+	// DEFAULT and TF_IDF only need tf(t,d), so every encoding but DOUBLE works them out again from it instead of storing them
+	public enum WeightEncoding {
+		DOUBLE, // every scheme's w(d,t) as a double: 32 bytes per posting, exact
+		RECOMPUTED, // nothing stored; OKAPI and WACKY are worked out from tf(t,d) and doc stats kept in memory: 0 bytes per posting, exact
+		QUANTIZED_16, // OKAPI and WACKY as one of 65536 levels between the term's min and max w(d,t): 4 bytes per posting
+		QUANTIZED_8 // OKAPI and WACKY as one of 256 levels between the term's min and max w(d,t): 2 bytes per posting
+	}
+
 	/**
 	 * A simple singleton to encapsulate static instances of every object/variable that will be selected, updated, or otherwise needed for the app's core functionality during a given runtime
 	 * <p>
@@ -99,9 +119,24 @@ public class Driver {
 		public static RunMode runMode;
 		public static QueryMode queryMode;
 		public static WeighingScheme activeWeighingScheme;
+		public static RankingStrategy activeRankingStrategy = RankingStrategy.TERM_AT_A_TIME;
 		public static IndexType indexType;
 		public static DiskIndexDAO indexDao;
 		public static boolean hasDiskIndex; // boolean flag indicating the presence of on-disk activeIndex data
+		public static int indexingThreads = Runtime.getRuntime().availableProcessors(); // worker threads used to build a DiskPositionalIndex; 1 builds on the calling thread
+		public static int indexingMemoryBudgetMb = 0; // postings memory a DiskPositionalIndex build may use before spilling to run files; 0 keeps the whole index in memory
+		public static int documentLoadingThreads = 2; // I/O threads that read docs ahead of the indexing threads; 0 reads each doc only when it's indexed
+		public static int documentPrefetchBudgetMb = 64; // how much doc content (shared by every range of docs being indexed) may be read ahead at once
+		public static boolean writeImpactPostings = true; // also write an impact-ordered copy of the postings (impacts.bin) for SCORE_AT_A_TIME ranking
+		public static WeightEncoding postingsWeightEncoding = WeightEncoding.RECOMPUTED; // how new DiskPositionalIndex builds store w(d,t); existing indexes keep their own
+		public static String serverHost = "localhost"; // address the search server listens on in SERVE mode
+		public static int serverPort = 8080;
+		public static int serverThreads = Runtime.getRuntime().availableProcessors(); // size of the search server's worker pool
+		public static boolean serverUseVirtualThreads = false; // run each search request on its own virtual thread instead (Java 21+; falls back to the pool)
+		public static int serverMaxResults = 1000; // the largest k a search request may ask for; larger ones are rejected
+		public static int batchThreads = Runtime.getRuntime().availableProcessors(); // threads a BATCH run spreads its queries over
+		public static int batchResultCount = 1000; // results written per query in a BATCH run
+		public static String batchRunTag = "cecs429"; // the tag at the end of every line of a BATCH run file
 		private static ActiveConfiguration instance; // singleton instance
 
 		private ActiveConfiguration() {
@@ -127,6 +162,10 @@ public class Driver {
 
 		public static void setRunMode(RunMode runMode) {
 			if (runMode == QUIT) {
+				// release any on-disk index files that were held open for querying
+				if (indexDao != null) {
+					indexDao.close();
+				}
 				System.out.println("Quitting the application - Goodbye!");
 				System.exit(0);
 			}
@@ -143,6 +182,10 @@ public class Driver {
 			// whenever a new active activeCorpus is assigned, use its path to create the active indexDao
 			activeCorpus = docCorpus;
 
+			// the previous corpus' index files won't be queried anymore, so close them before switching
+			if (indexDao != null) {
+				indexDao.close();
+			}
 			indexDao = new DiskIndexDAO(docCorpus.getPath());
 
 			// now use the new indexDao to determine if there is an on-disk activeIndex for the given activeCorpus
@@ -156,6 +199,10 @@ public class Driver {
 		public static void setWeightingScheme(WeighingScheme scheme) {
 			activeWeighingScheme = scheme;}
 
+		public static void setRankingStrategy(RankingStrategy strategy) {
+			activeRankingStrategy = strategy;
+		}
+
 		public static void setIndexType(IndexType indexType) {
 			ActiveConfiguration.indexType = indexType;
 		}
@@ -167,14 +214,179 @@ public class Driver {
 		public static void setHasDiskIndex(boolean hasDiskIndex) {
 			ActiveConfiguration.hasDiskIndex = hasDiskIndex;
 		}
+
+		public static void setIndexingThreads(int threads) {
+			indexingThreads = Math.max(1, threads);
+		}
+
+		public static void setIndexingMemoryBudgetMb(int megabytes) {
+			indexingMemoryBudgetMb = Math.max(0, megabytes);
+		}
+
+		public static void setDocumentLoadingThreads(int threads) {
+			documentLoadingThreads = Math.max(0, threads);
+		}
+
+		public static void setDocumentPrefetchBudgetMb(int megabytes) {
+			documentPrefetchBudgetMb = Math.max(0, megabytes);
+		}
+
+		public static void setWriteImpactPostings(boolean writeImpacts) {
+			writeImpactPostings = writeImpacts;
+		}
+
+		public static void setPostingsWeightEncoding(WeightEncoding encoding) {
+			postingsWeightEncoding = encoding;
+		}
+
+		public static void setServerHost(String host) {
+			serverHost = host;
+		}
+
+		public static void setServerPort(int port) {
+			serverPort = port;
+		}
+
+		public static void setServerThreads(int threads) {
+			serverThreads = Math.max(1, threads);
+		}
+
+		public static void setServerUseVirtualThreads(boolean useVirtualThreads) {
+			serverUseVirtualThreads = useVirtualThreads;
+		}
+
+		public static void setServerMaxResults(int maxResults) {
+			serverMaxResults = Math.max(1, maxResults);
+		}
+
+		public static void setBatchThreads(int threads) {
+			batchThreads = Math.max(1, threads);
+		}
+
+		public static void setBatchResultCount(int resultCount) {
+			batchResultCount = Math.max(1, resultCount);
+		}
+
+		public static void setBatchRunTag(String runTag) {
+			batchRunTag = runTag;
+		}
 	}
 
 	public static void main(String[] args) throws IOException {
+		// "serve <corpus directory> [port] [threads|virtual]" starts the search server without going through any of the menus
+		if (args.length > 0 && args[0].equals("serve")) {
+			serveHeadless(args);
+			return;
+		}
+		// "batch <corpus directory> <queries file> <run file> [threads] [k] [scheme] [strategy]" runs a file of ranked queries
+		if (args.length > 0 && args[0].equals("batch")) {
+			batchHeadless(args);
+			return;
+		}
 		while (runMode != QUIT) {
 			selectRunModeMenu();
 		}
 	}
 
+	private static void serveHeadless(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: serve <corpus directory> [port] [threads|virtual]");
+			return;
+		}
+		try {
+			if (args.length > 2) {
+				setServerPort(Integer.parseInt(args[2]));
+			}
+			if (args.length > 3) {
+				if (args[3].equals("virtual")) {
+					setServerUseVirtualThreads(true);
+				} else {
+					setServerThreads(Integer.parseInt(args[3]));
+				}
+			}
+		} catch (NumberFormatException ex) {
+			System.out.println("Error: The port and thread count must be numbers. " + ex);
+			return;
+		}
+		setActiveCorpus(DirectoryCorpus.loadTextOrJsonDirectory(Paths.get(args[1]).toAbsolutePath()));
+		SearchServer server = startSearchServer();
+		if (server != null) {
+			// the server's own threads keep the JVM running; stop it cleanly on Ctrl+C
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				server.stop();
+				indexDao.close();
+			}));
+		}
+	}
+
+	private static void batchHeadless(String[] args) {
+		if (args.length < 4) {
+			System.out.println("Usage: batch <corpus directory> <queries file> <run file> [threads] [k] [scheme] [strategy]");
+			return;
+		}
+		try {
+			if (args.length > 4) {
+				setBatchThreads(Integer.parseInt(args[4]));
+			}
+			if (args.length > 5) {
+				setBatchResultCount(Integer.parseInt(args[5]));
+			}
+			if (args.length > 6) {
+				setWeightingScheme(WeighingScheme.valueOf(args[6].toUpperCase()));
+			}
+			if (args.length > 7) {
+				setRankingStrategy(RankingStrategy.valueOf(args[7].toUpperCase()));
+			}
+		} catch (IllegalArgumentException ex) {
+			System.out.println("Error: Invalid batch argument. The thread count and k must be numbers, the scheme one of "
+					+ Arrays.toString(WeighingScheme.values()) + " and the strategy one of " + Arrays.toString(RankingStrategy.values()) + ". " + ex);
+			return;
+		}
+		setActiveCorpus(DirectoryCorpus.loadTextOrJsonDirectory(Paths.get(args[1]).toAbsolutePath()));
+		if (!hasDiskIndex) {
+			System.out.println("No existing index was found on disk for the corpus at '" + activeCorpus.getPath() + "'. Build one before running a batch of queries.");
+			return;
+		}
+		runMode = BATCH;
+		DiskPositionalIndex diskIndex = new DiskPositionalIndex(activeCorpus);
+		diskIndex.load();
+		activeIndex = diskIndex;
+		BatchSearcher searcher = new BatchSearcher(diskIndex, indexDao, activeCorpus.getCorpusSize(), activeWeighingScheme,
+				activeRankingStrategy, batchResultCount, batchRunTag);
+		try {
+			long start = System.nanoTime();
+			int queryCount = searcher.run(Paths.get(args[2]), Paths.get(args[3]), batchThreads);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("Ran %d queries on %d threads in %.3f seconds (%.1f queries/sec); results written to '%s'%n",
+					queryCount, batchThreads, seconds, queryCount / seconds, args[3]);
+		} catch (IOException ex) {
+			System.out.println("Failed to run the queries in '" + args[2] + "'. " + ex);
+		} finally {
+			indexDao.close();
+		}
+	}
+
+	// loads the active corpus' on-disk index and starts serving it over HTTP, or returns null if there's no index to serve
+	private static SearchServer startSearchServer() {
+		if (!hasDiskIndex) {
+			System.out.println("No existing index was found on disk for the corpus at '" + activeCorpus.getPath() + "'. Build one before starting the search server.");
+			return null;
+		}
+		runMode = SERVE;
+		DiskPositionalIndex diskIndex = new DiskPositionalIndex(activeCorpus);
+		diskIndex.load();
+		activeIndex = diskIndex;
+		try {
+			SearchServer server = new SearchServer(diskIndex, indexDao, activeCorpus.getCorpusSize(), serverHost, serverPort,
+					serverMaxResults, SearchServer.newExecutor(serverThreads, serverUseVirtualThreads));
+			server.start();
+			return server;
+		} catch (IOException ex) {
+			System.out.println("Failed to start the search server on " + serverHost + ":" + serverPort + ". " + ex);
+			return null;
+		}
+	}
+
 	private static void selectRunModeMenu() throws IOException {
 		Scanner in = new Scanner(System.in);
 
@@ -184,7 +396,8 @@ public class Driver {
 			System.out.println("(1) Build Mode - Build a new index ");
 			System.out.println("(2) Query Mode - Query an existing index ");
 //			System.out.println("(3) Evaluate Mode -  Evaluate the precision and recall of ranked retrievals ");
-			System.out.println("(3) Quit Application");
+			System.out.println("(3) Server Mode - Serve queries on an existing index over HTTP ");
+			System.out.println("(4) Quit Application");
 			int choice = in.nextInt();
 
 			switch (choice) {
@@ -263,6 +476,18 @@ public class Driver {
 //				}
 
 				case 3: {
+					setActiveCorpus(selectCorpusMenu());
+					SearchServer server = startSearchServer();
+					if (server != null) {
+						System.out.println("Press enter to stop the server...");
+						in.nextLine();
+						in.nextLine();
+						server.stop();
+					}
+					break;
+				}
+
+				case 4: {
 					setRunMode(QUIT);
 				}
 
@@ -435,6 +660,48 @@ public class Driver {
 		}
 	}
 
+	private static WeightEncoding selectWeightEncodingMenu() {
+		Scanner in = new Scanner(System.in);
+
+		System.out.println("\nPlease select how the new index should store its term weights from the options below: ");
+		System.out.println("******************************************************************************");
+		int count = 0;
+		for (WeightEncoding encoding : WeightEncoding.values()) {
+			count += 1;
+			System.out.println("(" + count + ")" + encoding.toString());
+		}
+		int choice = in.nextInt();
+
+		try {
+			return WeightEncoding.values()[choice - 1];
+		}
+		catch (Exception ex) {
+			System.out.println("Error: User input does not match any of of the available options. " + ex + "\n Keeping the " + postingsWeightEncoding + " encoding. ");
+			return postingsWeightEncoding;
+		}
+	}
+
+	private static RankingStrategy selectRankingMenu() {
+		Scanner in = new Scanner(System.in);
+
+		System.out.println("\nPlease select a ranking strategy for ranked retrieval from options below: ");
+		System.out.println("******************************************************************************");
+		int count = 0;
+		for (RankingStrategy strategy : RankingStrategy.values()) {
+			count += 1;
+			System.out.println("(" + count + ")" + strategy.toString());
+		}
+		int choice = in.nextInt();
+
+		try {
+			return RankingStrategy.values()[choice - 1];
+		}
+		catch (Exception ex) {
+			System.out.println("Error: User input does not match any of of the available options. " + ex + "\n Keeping the " + activeRankingStrategy + " strategy. ");
+			return activeRankingStrategy;
+		}
+	}
+
 	// driver method to route user selections from the main menu
 	private static void mainMenu() throws IOException {
 		Scanner in = new Scanner(System.in);
@@ -586,6 +853,7 @@ public class Driver {
 							String confirm = in.nextLine();
 							if (Objects.equals(confirm, "y")) {
 								System.out.println("Overwrite confirmed - The current on-disk index will be wiped and overwritten during initialization of the new index ");
+								postingsWeightEncoding = selectWeightEncodingMenu();
 								diskIndex.initializeInMemoryIndex();
 								activeIndex = diskIndex;
 							} else {
@@ -608,6 +876,7 @@ public class Driver {
 				else {
 					System.out.println("No exising index data was found in the current corpus directory. \n " +
 							"A new index will be built in memory and written to disk in the current corpus directory...\n");
+					postingsWeightEncoding = selectWeightEncodingMenu();
 					diskIndex.initializeInMemoryIndex();
 					activeIndex = diskIndex;
 				}
@@ -679,17 +948,22 @@ public class Driver {
 			processor = new AdvancedTokenProcessor();
 		}
 
+		// every query in this loop runs with the same index, processor and scoring settings, so they can all share one context
+		QueryContext context = new QueryContext(activeIndex, processor, activeWeighingScheme, activeRankingStrategy, indexDao,
+				activeCorpus.getCorpusSize());
+
 		while (!choice.equals("n")) {
 			System.out.println("Please enter your search query: ");
 			String query = in.nextLine();
 			List<Posting> queryPostings = new ArrayList<>();
 			QueryComponent fullQuery = parser.parseQuery(query);
+			reportUnknownTerms(fullQuery, processor);
 			// sort the list of postings and print results
 			if (queryMode == BOOLEAN) {
-				queryPostings = fullQuery.getPostings(processor, activeIndex);
+				queryPostings = fullQuery.getPostings(context);
 			}
 			else if (queryMode == RANKED){
-				queryPostings = fullQuery.getPostingsWithoutPositions(processor, activeIndex);
+				queryPostings = fullQuery.getPostingsWithoutPositions(context);
 			}
 
 			if (queryPostings == null || queryPostings.contains(null) || queryPostings.size() < 1) {
@@ -699,7 +973,7 @@ public class Driver {
 
 			else {
 				//queryPostings.sort(Comparator.comparingInt(Posting::getDocumentId));
-				viewQueryResults(queryPostings, activeCorpus, fullQuery);
+				viewQueryResults(queryPostings, activeCorpus, fullQuery, context);
 
 				System.out.println("View a document? (y/n) ");
 				String docChoice = in.nextLine();
@@ -714,6 +988,24 @@ public class Driver {
 		System.out.println("Returning to main menu...");
 	}
 
+	// the on-disk index doesn't print anything for terms it doesn't have, since it also serves the search server and batch runs
+	private static void reportUnknownTerms(QueryComponent query, TokenProcessor processor) {
+		if (!(activeIndex instanceof DiskPositionalIndex)) {
+			return;
+		}
+		for (String term : query.getProcessedTerms(processor)) {
+			if (indexDao.readDocumentFrequency(term) == 0) {
+				System.out.println("Failed to retrieve postings for the query term '" + term + "' because it was not found in any of the documents in the active corpus. ");
+			}
+		}
+	}
+
+	// a context for the evaluations, ranking with the index, weighing scheme and ranking strategy picked in the menus
+	private static QueryContext evaluationContext(TokenProcessor processor) {
+		return new QueryContext(activeIndex, processor, activeWeighingScheme, activeRankingStrategy, indexDao,
+				activeCorpus.getCorpusSize());
+	}
+
 	private static void evaluateQueryMenu() throws IOException {
 		Scanner in = new Scanner(System.in);
 		Evaluator evaluator = new Evaluator();
@@ -745,7 +1037,7 @@ public class Driver {
 						System.out.println("Please enter the number of ranked results to retrieve (K): ");
 						int kTerms = in.nextInt();
 
-						result.getRetrievedRelevant(kTerms);
+						result.getRetrievedRelevant(evaluationContext(processor), kTerms);
 						System.out.println("Ranked retrieval results with relevance are shown below: \n" + result);
 
 						System.out.println("View relevance results for another query? (y/n)");
@@ -766,7 +1058,7 @@ public class Driver {
 						System.out.println("Please enter the number of ranked results (K) to use for the average " +
 								"precision calculation :");
 						int kTerms = in.nextInt();
-						double result = evaluator.calculateAvgPrecision(activeWeighingScheme, kTerms, q);
+						double result = evaluator.calculateAvgPrecision(evaluationContext(processor), kTerms, q);
 
 						System.out.println("The average precision results are shown below: \n" );
 						System.out.println(" - Query: '" + q.getQueryString() + "' " );
@@ -794,9 +1086,12 @@ public class Driver {
 
 //						for (WeighingScheme w : WeighingScheme.values()) {
 //							w = activeWeighingScheme;
-							double map = evaluator.calculateMeanAvgPrecision(activeWeighingScheme,
+							double map = evaluator.calculateMeanAvgPrecision(evaluationContext(processor),
 									kTerms);
 							System.out.println("Total MAP Results Retrieved for the Weighing Scheme " + activeWeighingScheme + " over k = " + kTerms + " results: ");
+							if (activeIndex instanceof DiskPositionalIndex) {
+								System.out.println(" - Postings Weight Encoding: " + indexDao.readWeightEncoding());
+							}
 //							System.out.println(" - Weighing Scheme: " + w);
 							System.out.println(" - Mean Average Precision: " + map);
 							///}
@@ -810,6 +1105,11 @@ public class Driver {
 					String queryChoice = "y";
 
 					while (!queryChoice.equals("n")) {
+						// every strategy but SCORE_AT_A_TIME returns the same results, so for those this only changes how long the query takes
+						activeRankingStrategy = selectRankingMenu();
+						if (activeRankingStrategy == RankingStrategy.SCORE_AT_A_TIME) {
+							System.out.println("Note: " + activeRankingStrategy + " picks an approximate top K, so its results can differ from the other strategies'. ");
+						}
 						System.out.println("Please enter the line number of the query from file to be evaluated (e.i. enter 1 to evaluate the query from the first line of the file, etc.): ");
 						int queryNum = in.nextInt();
 
@@ -817,10 +1117,11 @@ public class Driver {
 
 						System.out.println("Please enter the number of iterations to measure throughout over:");
 						int iterations = in.nextInt();
-						double result = evaluator.calculateThroughput(q, iterations);
+						double result = evaluator.calculateThroughput(evaluationContext(processor), q, iterations);
 
 						System.out.println("The throughput results are shown below: \n");
 						System.out.println(" - Query: '" + q + "' ");
+						System.out.println(" - Ranking Strategy: " + activeRankingStrategy);
 						System.out.println(" - Iterations: " + iterations);
 						System.out.println(" - Mean Average Response Time: " + (1 / result));
 						System.out.println(" - Throughput: " + result + " Queries/Second ");
@@ -848,7 +1149,7 @@ public class Driver {
 	}
 
 
-	private static void viewQueryResults(List<Posting> results, DocumentCorpus activeCorpus, QueryComponent query) {
+	private static void viewQueryResults(List<Posting> results, DocumentCorpus activeCorpus, QueryComponent query, QueryContext context) {
 		// initialize counter to keep track of total number of documents the query was found in
 
 		try {
@@ -866,7 +1167,7 @@ public class Driver {
 					System.out.println("    - Final Accumulator Value (Ad): " + p.getDocWeight().getAccumulator());
 
 					System.out.println("    - Term Weights: ");
-					for (QueryTermWeight wQt : ((RankedQuery) query).getQueryWeights()) {
+					for (QueryTermWeight wQt : context.getQueryWeights()) {
 //						Optional<Posting> docTermPosting = query.getTermPostings().values().stream().toList().stream().filter(posting -> posting.getDocumentId()).
 //								findFirst();
 
@@ -877,8 +1178,9 @@ public class Driver {
 					}
 				}
 
-				else if (queryMode == BOOLEAN) {
-					System.out.println("    - Query Term Positions: " + p.getTermPositions().toString());
+				// only phrase queries read the term positions, every other boolean query leaves them empty
+				else if (queryMode == BOOLEAN && p.getTermPositionCount() > 0) {
+					System.out.println("    - Query Term Positions: " + Arrays.toString(p.getTermPositions()));
 				}
 
 				count += 1;
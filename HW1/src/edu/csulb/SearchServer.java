@@ -0,0 +1,286 @@
+package edu.csulb;
+
+import cecs429.indexes.DiskIndexDAO;
+import cecs429.indexes.Index;
+import cecs429.indexes.Posting;
+import cecs429.queries.*;
+import cecs429.text.AdvancedTokenProcessor;
+import cecs429.text.HyphenTokenProcessor;
+import cecs429.text.TokenProcessor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static edu.csulb.Driver.RankingStrategy;
+import static edu.csulb.Driver.WeighingScheme;
+
+/**
+ * Serves Boolean, phrase and ranked queries over an index as JSON with the JDK's built-in HTTP server, so the engine can
+ * be put under concurrent load without going through the interactive menus.
+ * <p>
+ * GET /search?q=[query]&amp;mode=[boolean|phrase|ranked]&amp;k=[results]&amp;scheme=[WeighingScheme]&amp;strategy=[RankingStrategy]
+ * returns the top k docs (highest ranked first for ranked queries, in docId order otherwise) with their docId, title and
+ * score; only q is required, and the rest default to a ranked query for the top 10 docs under the active scheme and strategy.
+ * A k larger than the server's maximum is rejected.
+ * GET /stats returns how many queries have been served and their mean latency.
+ * <p>
+ * Requests run on the given executor. Every request borrows a QueryContext (with its own token processor, stemmer and
+ * score accumulators) from a pool kept per mode, scheme and strategy, and hands it back when it's done, so no scratch space is
+ * shared between requests that run at once and none is allocated again for the next request.
+ */
+public class SearchServer {
+	private final Index mIndex;
+	private final DiskIndexDAO mIndexDao;
+	private final int mDocumentCount;
+	private final int mMaxResults;
+	private final HttpServer mServer;
+	private final ExecutorService mExecutor;
+	private final Map<String, ConcurrentLinkedQueue<QueryContext>> mContexts = new ConcurrentHashMap<>();
+	private final AtomicLong mQueryCount = new AtomicLong();
+	private final AtomicLong mQueryNanos = new AtomicLong();
+
+	public SearchServer(Index index, DiskIndexDAO indexDao, int documentCount, String host, int port, int maxResults,
+						ExecutorService executor) throws IOException {
+		mIndex = index;
+		mIndexDao = indexDao;
+		mDocumentCount = documentCount;
+		mMaxResults = maxResults;
+		mExecutor = executor;
+		mServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+		mServer.createContext("/search", this::handleSearch);
+		mServer.createContext("/stats", this::handleStats);
+		mServer.setExecutor(executor);
+	}
+
+	/**
+	 * Creates the executor the server's requests run on: a virtual thread per request if asked for and the JDK has them
+	 * (Java 21+), and otherwise a fixed pool of the given number of threads.
+	 */
+	public static ExecutorService newExecutor(int threads, boolean useVirtualThreads) {
+		if (useVirtualThreads) {
+			// looked up reflectively so the code still compiles and runs on JDKs older than 21
+			try {
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (ExecutorService) factory.invoke(null);
+			} catch (ReflectiveOperationException ex) {
+				System.out.println("Virtual threads aren't available on Java " + Runtime.version().feature() + "; using a pool of " + threads + " threads instead.");
+			}
+		}
+		return Executors.newFixedThreadPool(Math.max(1, threads));
+	}
+
+	public void start() {
+		mServer.start();
+		System.out.println("Search server listening on http://" + mServer.getAddress().getHostString() + ":" + mServer.getAddress().getPort() + "/search");
+	}
+
+	/**
+	 * Stops accepting requests, gives the ones in flight a moment to finish, and shuts down the executor.
+	 */
+	public void stop() {
+		mServer.stop(1);
+		mExecutor.shutdown();
+		try {
+			mExecutor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		System.out.println("Search server stopped after " + mQueryCount.get() + " queries.");
+	}
+
+	private void handleSearch(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+				sendError(exchange, 405, "Only GET requests are supported");
+				return;
+			}
+			Map<String, String> params = parseParams(exchange.getRequestURI().getRawQuery());
+			String query = params.get("q");
+			if (query == null || query.isBlank()) {
+				sendError(exchange, 400, "Missing the query parameter 'q'");
+				return;
+			}
+			String mode = params.getOrDefault("mode", "ranked").toLowerCase();
+			if (!mode.equals("boolean") && !mode.equals("phrase") && !mode.equals("ranked")) {
+				sendError(exchange, 400, "Unknown mode '" + mode + "'; expected boolean, phrase or ranked");
+				return;
+			}
+			int k;
+			WeighingScheme scheme;
+			RankingStrategy strategy;
+			try {
+				k = Integer.parseInt(params.getOrDefault("k", "10"));
+				scheme = params.containsKey("scheme") ? WeighingScheme.valueOf(params.get("scheme").toUpperCase())
+						: Driver.ActiveConfiguration.activeWeighingScheme;
+				strategy = params.containsKey("strategy") ? RankingStrategy.valueOf(params.get("strategy").toUpperCase())
+						: Driver.ActiveConfiguration.activeRankingStrategy;
+			} catch (IllegalArgumentException ex) {
+				sendError(exchange, 400, "Invalid parameter: " + ex.getMessage());
+				return;
+			}
+			// the top k are collected in arrays of k entries, so k is bounded before anything is allocated for it
+			if (k < 1 || k > mMaxResults) {
+				sendError(exchange, 400, "k must be between 1 and " + mMaxResults);
+				return;
+			}
+
+			long start = System.nanoTime();
+			List<Posting> results = search(query, mode, k, scheme, strategy);
+			long elapsed = System.nanoTime() - start;
+			mQueryCount.incrementAndGet();
+			mQueryNanos.addAndGet(elapsed);
+
+			send(exchange, 200, toJson(query, mode, k, scheme, strategy, results, elapsed));
+		} catch (Exception ex) {
+			System.out.println("Failed to serve the request '" + exchange.getRequestURI() + "': " + ex);
+			sendError(exchange, 500, ex.toString());
+		}
+	}
+
+	private void handleStats(HttpExchange exchange) throws IOException {
+		long count = mQueryCount.get();
+		double meanMs = count == 0 ? 0 : mQueryNanos.get() / 1e6 / count;
+		send(exchange, 200, "{\"queries\":" + count + ",\"meanLatencyMs\":" + jsonNumber(meanMs) + "}");
+	}
+
+	// runs the query with a context borrowed from the pool for its mode, scheme and strategy
+	private List<Posting> search(String query, String mode, int k, WeighingScheme scheme, RankingStrategy strategy) {
+		boolean ranked = mode.equals("ranked");
+		String key = mode + "/" + scheme + "/" + strategy;
+		ConcurrentLinkedQueue<QueryContext> pool = mContexts.computeIfAbsent(key, unused -> new ConcurrentLinkedQueue<>());
+		QueryContext context = pool.poll();
+		if (context == null) {
+			// ranked queries are processed like the Driver's ranked mode, and Boolean and phrase queries like its Boolean mode
+			// the processor keeps its own stemmer instead of the request thread's, so a thread per request doesn't build one per request
+			TokenProcessor processor = ranked ? AdvancedTokenProcessor.withOwnStemmer() : new HyphenTokenProcessor();
+			context = new QueryContext(mIndex, processor, scheme, strategy, mIndexDao, mDocumentCount);
+		}
+		try {
+			if (ranked) {
+				RankedQuery rankedQuery = (RankedQuery) new RankedQueryParser().parseQuery(query);
+				// there can never be more than N results, so there's no need to make room for more
+				context.setResultCount(Math.max(1, Math.min(k, mDocumentCount)));
+				return rankedQuery.getPostingsWithoutPositions(context);
+			}
+			QueryComponent parsed = mode.equals("phrase") ? new PhraseLiteral(query.replace("\"", "").trim())
+					: new BooleanQueryParser().parseQuery(query);
+			if (parsed == null) {
+				return null;
+			}
+			return parsed.getPostings(context);
+		} finally {
+			pool.offer(context);
+		}
+	}
+
+	private String toJson(String query, String mode, int k, WeighingScheme scheme, RankingStrategy strategy, List<Posting> results, long elapsedNanos) {
+		boolean ranked = mode.equals("ranked");
+		int total = results == null ? 0 : results.size();
+		int count = Math.min(total, k);
+
+		StringBuilder json = new StringBuilder(128 + 64 * count);
+		json.append("{\"query\":").append(jsonString(query));
+		json.append(",\"mode\":").append(jsonString(mode));
+		if (ranked) {
+			json.append(",\"scheme\":").append(jsonString(scheme.toString()));
+			json.append(",\"strategy\":").append(jsonString(strategy.toString()));
+		}
+		json.append(",\"total\":").append(total);
+		json.append(",\"tookMs\":").append(jsonNumber(elapsedNanos / 1e6));
+		json.append(",\"results\":[");
+		List<Posting> ordered = ranked && results != null ? RankedQuery.highestRankedFirst(results) : results;
+		for (int i = 0; i < count; i++) {
+			Posting p = ordered.get(i);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"docId\":").append(p.getDocumentId());
+			json.append(",\"title\":").append(jsonString(mIndexDao.readDocTitle(p.getDocumentId())));
+			json.append(",\"score\":").append(ranked ? jsonNumber(p.getDocWeight().getAccumulator()) : "null");
+			json.append('}');
+		}
+		json.append("]}");
+		return json.toString();
+	}
+
+	private static Map<String, String> parseParams(String rawQuery) {
+		Map<String, String> params = new HashMap<>();
+		if (rawQuery == null) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int split = pair.indexOf('=');
+			String name = split < 0 ? pair : pair.substring(0, split);
+			String value = split < 0 ? "" : pair.substring(split + 1);
+			params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return params;
+	}
+
+	private static String jsonString(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					escaped.append("\\\"");
+					break;
+				case '\\':
+					escaped.append("\\\\");
+					break;
+				case '\n':
+					escaped.append("\\n");
+					break;
+				case '\r':
+					escaped.append("\\r");
+					break;
+				case '\t':
+					escaped.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						escaped.append(String.format("\\u%04x", (int) c));
+					} else {
+						escaped.append(c);
+					}
+			}
+		}
+		return escaped.append('"').toString();
+	}
+
+	// JSON has no NaN or infinity, so those come out as null
+	private static String jsonNumber(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, "{\"error\":" + jsonString(message) + "}");
+	}
+
+	private static void send(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}